@@ -0,0 +1,13 @@
+#!/usr/bin/env bash
+# Builds the JMH benchmarks and runs them, writing the results to results/<commit>.json.
+# Extra arguments are passed to JMH, e.g. "ServiceBenchmark -p users=10000" or "-prof gc".
+set -euo pipefail
+cd "$(dirname "$0")"
+
+mvn -B -q package
+commit="$(git rev-parse --short HEAD)"
+if [ -n "$(git status --porcelain -- ../src .)" ]; then
+    commit="${commit}-dirty"
+fi
+mkdir -p results
+java -jar target/benchmarks.jar -rf json -rff "results/${commit}.json" "$@"
@@ -0,0 +1,139 @@
+package benchmarks;
+
+import codec.Codec;
+import codec.FriendshipCodec;
+import codec.UserCodec;
+import entity.Friendship;
+import entity.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the binary codecs with Java serialization: the time to encode and decode an entity, and, with main, the
+ * encoded size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+    private static final int COUNT = 1024;
+
+    private final UserCodec userCodec = new UserCodec();
+    private final FriendshipCodec friendshipCodec = new FriendshipCodec();
+    private final ByteBuffer buffer = ByteBuffer.allocate(1024);
+    private List<User> users;
+    private List<Friendship> friendships;
+    private int next = 0;
+
+    private static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(new User("First" + i, "Last" + i, "user" + i + "@mail.com"));
+        }
+        return users;
+    }
+
+    private static List<Friendship> friendships(int count) {
+        List<Friendship> friendships = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            friendships.add(new Friendship(UUID.randomUUID(), UUID.randomUUID()));
+        }
+        return friendships;
+    }
+
+    @Setup
+    public void setUp() {
+        this.users = users(COUNT);
+        this.friendships = friendships(COUNT);
+    }
+
+    private int nextIndex() {
+        int index = this.next;
+        this.next = (this.next + 1) % COUNT;
+        return index;
+    }
+
+    private <T> T roundTrip(Codec<T> codec, T value) {
+        this.buffer.clear();
+        codec.encode(value, this.buffer);
+        this.buffer.flip();
+        return codec.decode(this.buffer);
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+            objectOut.writeObject(value);
+        }
+        return out.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return objectIn.readObject();
+        }
+    }
+
+    @Benchmark
+    public User userCodec() {
+        return this.roundTrip(this.userCodec, this.users.get(this.nextIndex()));
+    }
+
+    @Benchmark
+    public Object userSerialization() throws Exception {
+        return deserialize(serialize(this.users.get(this.nextIndex())));
+    }
+
+    @Benchmark
+    public Friendship friendshipCodec() {
+        return this.roundTrip(this.friendshipCodec, this.friendships.get(this.nextIndex()));
+    }
+
+    @Benchmark
+    public Object friendshipSerialization() throws Exception {
+        return deserialize(serialize(this.friendships.get(this.nextIndex())));
+    }
+
+    /**
+     * @return Average bytes of the entities encoded by a codec.
+     */
+    private static <T> long codecBytes(Codec<T> codec, List<T> values) {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        long bytes = 0;
+        for (T value : values) {
+            buffer.clear();
+            codec.encode(value, buffer);
+            bytes += buffer.position();
+        }
+        return bytes / values.size();
+    }
+
+    /**
+     * @return Average bytes of the entities written with Java serialization.
+     */
+    private static long serializedBytes(List<?> values) throws IOException {
+        long bytes = 0;
+        for (Object value : values) {
+            bytes += serialize(value).length;
+        }
+        return bytes / values.size();
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<User> users = users(COUNT);
+        List<Friendship> friendships = friendships(COUNT);
+        System.out.printf("user,codec,bytes=%d%n", codecBytes(new UserCodec(), users));
+        System.out.printf("user,serialization,bytes=%d%n", serializedBytes(users));
+        System.out.printf("friendship,codec,bytes=%d%n", codecBytes(new FriendshipCodec(), friendships));
+        System.out.printf("friendship,serialization,bytes=%d%n", serializedBytes(friendships));
+    }
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import entity.User;
+import org.openjdk.jmh.annotations.*;
+import repository.InMemoryRepository;
+import repository.NaturalKeys;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the hot paths of InMemoryRepository as it grows: a lookup by ID, and a save followed by a delete, which
+ * keeps the size of the repository constant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private InMemoryRepository<UUID, User> repository;
+    private UUID[] ids;
+    private User extra;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<User> users = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            users.add(new User(new UUID(random.nextLong(), random.nextLong()), "First" + i, "Last" + i,
+                    "user" + i + "@mail.com"));
+        }
+        this.repository = new InMemoryRepository<>(NaturalKeys.user());
+        this.repository.saveAll(users);
+
+        // the IDs are looked up in a shuffled order, so that the lookups miss the cache as they do in a service
+        List<UUID> shuffled = new ArrayList<>(users.stream().map(User::getId).toList());
+        Collections.shuffle(shuffled, random);
+        this.ids = shuffled.toArray(new UUID[0]);
+        this.extra = new User(new UUID(random.nextLong(), random.nextLong()), "Extra", "User", "extra@mail.com");
+    }
+
+    @Benchmark
+    public User getOne() {
+        UUID id = this.ids[this.next];
+        this.next = this.next + 1 == this.ids.length ? 0 : this.next + 1;
+        return this.repository.getOne(id);
+    }
+
+    @Benchmark
+    public User saveDelete() {
+        this.repository.save(this.extra);
+        return this.repository.delete(this.extra.getId());
+    }
+}
@@ -0,0 +1,129 @@
+package benchmarks;
+
+import entity.User;
+import org.openjdk.jmh.annotations.*;
+import repository.InMemoryFriendshipRepository;
+import repository.InMemoryRepository;
+import repository.NaturalKeys;
+import service.Service;
+import utility.ActivityStrategy;
+import utility.Graph;
+import utility.NetworkGenerator;
+import utility.NetworkModel;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the graph operations of the service on random networks of several sizes and densities.
+ * The networks are Erdős–Rényi networks generated from a fixed seed, so every run measures the same networks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceBenchmark {
+    /**
+     * A random network, with the service built over it.
+     */
+    public static class Network {
+        Service service;
+        UUID[] ids;
+        HashMap<UUID, List<UUID>> friends;
+        private int next = 0;
+
+        /**
+         * @param users  Number of users.
+         * @param degree Average number of friends of a user.
+         */
+        protected void build(int users, int degree) {
+            NetworkGenerator generator = new NetworkGenerator(NetworkModel.ERDOS_RENYI, users, degree, 42);
+            InMemoryRepository<UUID, User> userRepository = new InMemoryRepository<>(NaturalKeys.user());
+            InMemoryFriendshipRepository friendshipRepository = new InMemoryFriendshipRepository();
+            generator.generate(userRepository, friendshipRepository);
+
+            this.ids = new UUID[users];
+            this.friends = new HashMap<>();
+            for (int i = 0; i < users; i++) {
+                this.ids[i] = generator.id(i);
+                this.friends.put(this.ids[i], new ArrayList<>());
+            }
+            generator.friendships((user1, user2) -> {
+                this.friends.get(this.ids[user1]).add(this.ids[user2]);
+                this.friends.get(this.ids[user2]).add(this.ids[user1]);
+            });
+
+            this.service = new Service(userRepository, friendshipRepository);
+        }
+
+        UUID nextId() {
+            UUID id = this.ids[this.next];
+            this.next = this.next + 1 == this.ids.length ? 0 : this.next + 1;
+            return id;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class LargeNetwork extends Network {
+        @Param({"1000", "10000", "100000"})
+        public int users;
+
+        /**
+         * Average number of friends of a user.
+         */
+        @Param({"2", "8"})
+        public int degree;
+
+        @Setup
+        public void setUp() {
+            this.build(this.users, this.degree);
+        }
+    }
+
+    /**
+     * Networks on which the diameter of every community, which takes a search from every member, stays measurable.
+     */
+    @State(Scope.Benchmark)
+    public static class SmallNetwork extends Network {
+        @Param({"1000", "10000"})
+        public int users;
+
+        /**
+         * Average number of friends of a user.
+         */
+        @Param({"2", "8"})
+        public int degree;
+
+        @Setup
+        public void setUp() {
+            this.build(this.users, this.degree);
+        }
+    }
+
+    private final Graph graph = new Graph();
+
+    @Benchmark
+    public List<User> getFriendsOf(LargeNetwork network) {
+        return network.service.getFriendsOf(network.nextId());
+    }
+
+    @Benchmark
+    public int getNumberOfCommunities(LargeNetwork network) {
+        return network.service.getNumberOfCommunities();
+    }
+
+    @Benchmark
+    public List<List<UUID>> communities(LargeNetwork network) {
+        return this.graph.communities(Arrays.asList(network.ids), network.friends);
+    }
+
+    /**
+     * Measured by diameter: the random networks have communities above the limit of the exact longest path.
+     */
+    @Benchmark
+    public List<List<UUID>> mostActiveCommunity(SmallNetwork network) {
+        return network.service.mostActiveCommunity(ActivityStrategy.DIAMETER);
+    }
+}
@@ -0,0 +1,97 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import repository.SlotIndex;
+import repository.UuidSlotIndex;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the index of InMemoryRepository for UUIDs against a HashMap: the time of a lookup, and, with main, the
+ * heap bytes per entry. The random UUIDs are looked up in a shuffled order, so that the lookups miss the cache as
+ * they do in a service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UuidMapBenchmark {
+    /**
+     * Bytes of a HashMap node and of a boxed Integer, with compressed references and 8 byte alignment.
+     */
+    private static final int NODE_BYTES = 32;
+    private static final int INTEGER_BYTES = 16;
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    @Param({"hash_map", "uuid_slot_index"})
+    public String index;
+
+    private SlotIndex<UUID> slots;
+    private UUID[] lookups;
+    private int next = 0;
+
+    private static List<UUID> ids(int count, Random random) {
+        List<UUID> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        return ids;
+    }
+
+    private static SlotIndex<UUID> fill(String index, List<UUID> ids) {
+        SlotIndex<UUID> slots = index.equals("hash_map") ? new SlotIndex.Hashed<>() : new UuidSlotIndex();
+        for (int i = 0; i < ids.size(); i++) {
+            slots.put(ids.get(i), i);
+        }
+        return slots;
+    }
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<UUID> ids = ids(this.size, random);
+        this.slots = fill(this.index, ids);
+        List<UUID> shuffled = new ArrayList<>(ids);
+        Collections.shuffle(shuffled, random);
+        this.lookups = shuffled.toArray(new UUID[0]);
+    }
+
+    @Benchmark
+    public int get() {
+        UUID id = this.lookups[this.next];
+        this.next = this.next + 1 == this.lookups.length ? 0 : this.next + 1;
+        return this.slots.get(id);
+    }
+
+    /**
+     * Heap bytes per entry of an index, computed from the sizes of its arrays and objects. The UUIDs are shared
+     * with the entities of the repository, so they aren't counted for the HashMap.
+     */
+    private static double bytesPerEntry(SlotIndex<UUID> slots) {
+        long bytes;
+        if (slots instanceof UuidSlotIndex uuids) {
+            bytes = 20L * uuids.capacity();
+        } else {
+            // the table of a HashMap doubles from 16 while it is more than three quarters full
+            long table = 16;
+            while (slots.size() > table * 3 / 4) {
+                table *= 2;
+            }
+            bytes = 4 * table + (long) (NODE_BYTES + INTEGER_BYTES) * slots.size();
+        }
+        return (double) bytes / slots.size();
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        List<UUID> ids = ids(count, new Random(42));
+        for (String index : List.of("hash_map", "uuid_slot_index")) {
+            System.out.printf("%s,size=%d,bytes_per_entry=%.1f%n", index, count, bytesPerEntry(fill(index, ids)));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package benchmarks;
+
+import entity.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import validator.UserValidator;
+import validator.ValidateStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the validation strategies on a batch of valid users. Run with "-prof gc" to see the allocations:
+ * FAST should allocate nothing, and PARALLEL should divide the batch time by the number of cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorBenchmark {
+    @Param({"1024", "100000"})
+    public int batch;
+
+    private final UserValidator validator = new UserValidator();
+    private List<User> users;
+
+    @Setup
+    public void setUp() {
+        this.users = new ArrayList<>(this.batch);
+        for (int i = 0; i < this.batch; i++) {
+            this.users.add(new User("Firstname", "Lastname", "user" + i + "@mail.com"));
+        }
+    }
+
+    private void validateEach(ValidateStrategy strategy, Blackhole blackhole) {
+        for (User user : this.users) {
+            this.validator.validate(user, strategy);
+            blackhole.consume(user);
+        }
+    }
+
+    @Benchmark
+    public void slow(Blackhole blackhole) {
+        this.validateEach(ValidateStrategy.SLOW, blackhole);
+    }
+
+    @Benchmark
+    public void fast(Blackhole blackhole) {
+        this.validateEach(ValidateStrategy.FAST, blackhole);
+    }
+
+    @Benchmark
+    public String[] parallel() {
+        return this.validator.validateAll(this.users, ValidateStrategy.PARALLEL);
+    }
+}
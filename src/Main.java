@@ -1,7 +1,9 @@
-import entity.Friendship;
-import entity.Tuple;
 import entity.User;
+import repository.InMemoryFriendshipRepository;
 import repository.InMemoryRepository;
+import repository.NaturalKeys;
+import service.BulkImporter;
+import service.InstrumentedService;
 import service.Service;
 import ui.ConsoleUI;
 
@@ -10,11 +12,11 @@ import java.util.UUID;
 
 public class Main {
     public static void main(String[] args) throws IOException {
-        InMemoryRepository<UUID, User> userInMemoryRepository = new InMemoryRepository<>();
-        InMemoryRepository<Tuple<UUID, UUID>, Friendship> friendshipInMemoryRepository = new InMemoryRepository<>();
+        InMemoryRepository<UUID, User> userInMemoryRepository = new InMemoryRepository<>(NaturalKeys.user());
+        InMemoryFriendshipRepository friendshipInMemoryRepository = new InMemoryFriendshipRepository();
         Service service = new Service(userInMemoryRepository, friendshipInMemoryRepository);
 
-        ConsoleUI consoleUI = new ConsoleUI(service);
+        ConsoleUI consoleUI = new ConsoleUI(new InstrumentedService<>(service), new BulkImporter(service));
         consoleUI.run();
     }
 }
@@ -0,0 +1,37 @@
+package codec;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary encoding of a type into a ByteBuffer.
+ *
+ * @param <T> Encoded type.
+ */
+public interface Codec<T> {
+    /**
+     * @param value Value to be encoded.
+     * @return Number of bytes written by encode for value.
+     */
+    int encodedSize(T value);
+
+    /**
+     * Writes a value at the position of the buffer and advances the position.
+     *
+     * @param value  Value to be encoded.
+     * @param buffer Destination buffer.
+     * @throws BufferOverflowException If the buffer doesn't have encodedSize(value) bytes remaining.
+     */
+    void encode(T value, ByteBuffer buffer) throws BufferOverflowException;
+
+    /**
+     * Reads a value from the position of the buffer and advances the position.
+     *
+     * @param buffer Source buffer.
+     * @return Decoded value.
+     * @throws BufferUnderflowException If the buffer ends before the value.
+     * @throws IllegalArgumentException If the bytes aren't a valid encoding.
+     */
+    T decode(ByteBuffer buffer) throws BufferUnderflowException, IllegalArgumentException;
+}
@@ -0,0 +1,123 @@
+package codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Encodings of the field types shared by the codecs.
+ * UUIDs are two longs, dates are epoch seconds (UTC) and nanos, and strings are their UTF-8 length, or -1 for null,
+ * followed by their UTF-8 bytes. Strings are encoded straight from their characters, without a byte array.
+ */
+public final class Codecs {
+    public static final int UUID_SIZE = 16;
+    public static final int DATE_SIZE = 12;
+
+    private Codecs() {
+    }
+
+    public static void putUuid(UUID uuid, ByteBuffer buffer) {
+        buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+    }
+
+    public static UUID getUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    public static void putDate(LocalDateTime date, ByteBuffer buffer) {
+        buffer.putLong(date.toEpochSecond(ZoneOffset.UTC)).putInt(date.getNano());
+    }
+
+    public static LocalDateTime getDate(ByteBuffer buffer) {
+        long seconds = buffer.getLong();
+        int nanos = buffer.getInt();
+        try {
+            return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+        } catch (DateTimeException dTE) {
+            throw new IllegalArgumentException("Invalid date encoding.", dTE);
+        }
+    }
+
+    /**
+     * @param string String to be encoded, may be null.
+     * @return Number of UTF-8 bytes of the string.
+     */
+    private static int utf8Length(String string) {
+        int length = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < string.length()
+                    && Character.isLowSurrogate(string.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @param string String to be encoded, may be null.
+     * @return Number of bytes written by putString.
+     */
+    public static int stringSize(String string) {
+        return string == null ? 4 : 4 + utf8Length(string);
+    }
+
+    public static void putString(String string, ByteBuffer buffer) {
+        if (string == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(utf8Length(string));
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < string.length()
+                    && Character.isLowSurrogate(string.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                // lone surrogates are written as their 3 byte form, like the other BMP characters
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    public static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string length.");
+        }
+        String string;
+        if (buffer.hasArray()) {
+            string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            string = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return string;
+    }
+}
@@ -0,0 +1,28 @@
+package codec;
+
+import entity.Friendship;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Codec of a friendship: the IDs of its two users and its date.
+ */
+public class FriendshipCodec implements Codec<Friendship> {
+    private static final UuidPairCodec KEY_CODEC = new UuidPairCodec();
+
+    @Override
+    public int encodedSize(Friendship value) {
+        return 2 * Codecs.UUID_SIZE + Codecs.DATE_SIZE;
+    }
+
+    @Override
+    public void encode(Friendship value, ByteBuffer buffer) {
+        KEY_CODEC.encode(value.getId(), buffer);
+        Codecs.putDate(value.getFriendshipDate(), buffer);
+    }
+
+    @Override
+    public Friendship decode(ByteBuffer buffer) {
+        return new Friendship(Codecs.getUuid(buffer), Codecs.getUuid(buffer), Codecs.getDate(buffer));
+    }
+}
@@ -0,0 +1,77 @@
+package codec;
+
+import java.io.*;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Codec backed by Java serialization, for types without a binary codec: the length of the serialized form,
+ * followed by the serialized form. It is several times larger and slower than a binary codec such as
+ * {@link UserCodec} or {@link FriendshipCodec}, which should be preferred where one exists.
+ * The serialized form of the last value is kept, so that measuring and then encoding a value, or encoding it again
+ * after a buffer overflow, serializes it only once.
+ *
+ * @param <T> Encoded type.
+ */
+public class SerializableCodec<T> implements Codec<T> {
+    /**
+     * A value and its serialized form; replaced as a whole, so a thread never sees the form of another value.
+     */
+    private record Serialized(Object value, byte[] bytes) {
+    }
+
+    private volatile Serialized last;
+
+    /**
+     * @return Serialized form of the value, from the cache if it is the last value.
+     */
+    private byte[] serialized(T value) {
+        Serialized cached = this.last;
+        if (cached != null && cached.value() == value) {
+            return cached.bytes();
+        }
+        byte[] bytes = this.serialize(value);
+        this.last = new Serialized(value, bytes);
+        return bytes;
+    }
+
+    private byte[] serialize(T value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (IOException iOE) {
+            throw new IllegalArgumentException("Value couldn't be serialized.", iOE);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public int encodedSize(T value) {
+        return 4 + this.serialized(value).length;
+    }
+
+    @Override
+    public void encode(T value, ByteBuffer buffer) {
+        byte[] bytes = this.serialized(value);
+        if (buffer.remaining() < 4 + bytes.length) {
+            throw new BufferOverflowException();
+        }
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T decode(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid length.");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (T) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalArgumentException("Value couldn't be deserialized.", e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package codec;
+
+import entity.User;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Codec of a user: ID, first name, last name and email.
+ */
+public class UserCodec implements Codec<User> {
+    @Override
+    public int encodedSize(User value) {
+        return Codecs.UUID_SIZE + Codecs.stringSize(value.getFirstName()) + Codecs.stringSize(value.getLastName())
+                + Codecs.stringSize(value.getEmail());
+    }
+
+    @Override
+    public void encode(User value, ByteBuffer buffer) {
+        Codecs.putUuid(value.getId(), buffer);
+        Codecs.putString(value.getFirstName(), buffer);
+        Codecs.putString(value.getLastName(), buffer);
+        Codecs.putString(value.getEmail(), buffer);
+    }
+
+    @Override
+    public User decode(ByteBuffer buffer) {
+        return new User(Codecs.getUuid(buffer), Codecs.getString(buffer), Codecs.getString(buffer), Codecs.getString(buffer));
+    }
+}
@@ -0,0 +1,24 @@
+package codec;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Codec of a UUID: its two longs.
+ */
+public class UuidCodec implements Codec<UUID> {
+    @Override
+    public int encodedSize(UUID value) {
+        return Codecs.UUID_SIZE;
+    }
+
+    @Override
+    public void encode(UUID value, ByteBuffer buffer) {
+        Codecs.putUuid(value, buffer);
+    }
+
+    @Override
+    public UUID decode(ByteBuffer buffer) {
+        return Codecs.getUuid(buffer);
+    }
+}
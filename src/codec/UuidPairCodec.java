@@ -0,0 +1,26 @@
+package codec;
+
+import entity.FriendshipKey;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Codec of the ID of a friendship: the two longs of the left UUID, then the two longs of the right UUID.
+ */
+public class UuidPairCodec implements Codec<FriendshipKey> {
+    @Override
+    public int encodedSize(FriendshipKey value) {
+        return 2 * Codecs.UUID_SIZE;
+    }
+
+    @Override
+    public void encode(FriendshipKey value, ByteBuffer buffer) {
+        buffer.putLong(value.getLeftHigh()).putLong(value.getLeftLow())
+                .putLong(value.getRightHigh()).putLong(value.getRightLow());
+    }
+
+    @Override
+    public FriendshipKey decode(ByteBuffer buffer) {
+        return new FriendshipKey(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+    }
+}
@@ -5,12 +5,66 @@ import java.time.format.DateTimeFormatter;
 import java.util.Objects;
 import java.util.UUID;
 
-public class Friendship extends Entity<Tuple<UUID, UUID>> {
+public class Friendship extends Entity<FriendshipKey> {
     private final LocalDateTime friendshipDate;
 
     public Friendship(UUID userId1, UUID userId2) {
-        super(new Tuple<>(userId1, userId2));
-        this.friendshipDate = LocalDateTime.now();
+        this(userId1, userId2, LocalDateTime.now());
+    }
+
+    /**
+     * Initializes a friendship created at a known date
+     *
+     * @param userId1        ID of the first user
+     * @param userId2        ID of the second user
+     * @param friendshipDate Date when the friendship was created
+     */
+    public Friendship(UUID userId1, UUID userId2, LocalDateTime friendshipDate) {
+        super(new FriendshipKey(userId1, userId2));
+        this.friendshipDate = friendshipDate;
+    }
+
+    /**
+     * Initializes the friendship between two users under its canonical ID.
+     *
+     * @param userId1 ID of one of the users
+     * @param userId2 ID of the other user
+     * @return Friendship whose ID is {@link #key(UUID, UUID)}
+     */
+    public static Friendship between(UUID userId1, UUID userId2) {
+        return between(userId1, userId2, LocalDateTime.now());
+    }
+
+    /**
+     * Initializes the friendship between two users, created at a known date, under its canonical ID.
+     *
+     * @param userId1        ID of one of the users
+     * @param userId2        ID of the other user
+     * @param friendshipDate Date when the friendship was created
+     * @return Friendship whose ID is {@link #key(UUID, UUID)}
+     */
+    public static Friendship between(UUID userId1, UUID userId2, LocalDateTime friendshipDate) {
+        return userId1.compareTo(userId2) <= 0
+                ? new Friendship(userId1, userId2, friendshipDate)
+                : new Friendship(userId2, userId1, friendshipDate);
+    }
+
+    /**
+     * Friendships are undirected, so a friendship is stored once, under the pair of its users in ascending order.
+     *
+     * @param userId1 ID of one of the users
+     * @param userId2 ID of the other user
+     * @return Canonical ID of the friendship between the users
+     */
+    public static FriendshipKey key(UUID userId1, UUID userId2) {
+        return userId1.compareTo(userId2) <= 0 ? new FriendshipKey(userId1, userId2) : new FriendshipKey(userId2, userId1);
+    }
+
+    /**
+     * @return true if the ID of the friendship is its canonical ID.
+     */
+    public boolean isCanonical() {
+        return this.id.isOrdered();
     }
 
     /**
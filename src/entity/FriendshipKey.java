@@ -0,0 +1,107 @@
+package entity;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * ID of a friendship: the IDs of its two users, stored as four longs, with the hash computed once.
+ */
+public final class FriendshipKey implements Serializable {
+    private static final long serialVersionUID = -1309551828962458095L;
+
+    private final long leftHigh;
+    private final long leftLow;
+    private final long rightHigh;
+    private final long rightLow;
+    private final int hash;
+
+    public FriendshipKey(UUID left, UUID right) {
+        this(left.getMostSignificantBits(), left.getLeastSignificantBits(),
+                right.getMostSignificantBits(), right.getLeastSignificantBits());
+    }
+
+    /**
+     * Initializes a key from the bits of the two IDs.
+     *
+     * @param leftHigh  Most significant bits of the ID of the first user.
+     * @param leftLow   Least significant bits of the ID of the first user.
+     * @param rightHigh Most significant bits of the ID of the second user.
+     * @param rightLow  Least significant bits of the ID of the second user.
+     */
+    public FriendshipKey(long leftHigh, long leftLow, long rightHigh, long rightLow) {
+        this.leftHigh = leftHigh;
+        this.leftLow = leftLow;
+        this.rightHigh = rightHigh;
+        this.rightLow = rightLow;
+        this.hash = hash(leftHigh, leftLow, rightHigh, rightLow);
+    }
+
+    /**
+     * Hash of a key given by its bits; equal to the hashCode of the key, so lookups can hash without a key object.
+     */
+    public static int hash(long leftHigh, long leftLow, long rightHigh, long rightLow) {
+        long h = leftHigh * 0x9E3779B97F4A7C15L;
+        h = (h ^ leftLow) * 0x9E3779B97F4A7C15L;
+        h = (h ^ rightHigh) * 0x9E3779B97F4A7C15L;
+        h = (h ^ rightLow) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    public UUID getLeft() {
+        return new UUID(this.leftHigh, this.leftLow);
+    }
+
+    public UUID getRight() {
+        return new UUID(this.rightHigh, this.rightLow);
+    }
+
+    public long getLeftHigh() {
+        return this.leftHigh;
+    }
+
+    public long getLeftLow() {
+        return this.leftLow;
+    }
+
+    public long getRightHigh() {
+        return this.rightHigh;
+    }
+
+    public long getRightLow() {
+        return this.rightLow;
+    }
+
+    /**
+     * @return true if the ID of the first user isn't greater than the ID of the second, in the order of UUID.
+     */
+    public boolean isOrdered() {
+        int high = Long.compare(this.leftHigh, this.rightHigh);
+        return high < 0 || high == 0 && Long.compare(this.leftLow, this.rightLow) <= 0;
+    }
+
+    /**
+     * @return true if the key consists of the given bits.
+     */
+    public boolean matches(long leftHigh, long leftLow, long rightHigh, long rightLow) {
+        return this.leftHigh == leftHigh && this.leftLow == leftLow
+                && this.rightHigh == rightHigh && this.rightLow == rightLow;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FriendshipKey key = (FriendshipKey) o;
+        return this.hash == key.hash && this.matches(key.leftHigh, key.leftLow, key.rightHigh, key.rightLow);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    @Override
+    public String toString() {
+        return this.getLeft() + " " + this.getRight();
+    }
+}
@@ -1,5 +1,6 @@
 package entity;
 
+import java.io.Serializable;
 import java.util.Objects;
 
 /**
@@ -7,7 +8,9 @@ import java.util.Objects;
  * @param <E1> First entity of the pair.
  * @param <E2> Second entity of the pair.
  */
-public class Tuple<E1, E2> {
+public class Tuple<E1, E2> implements Serializable {
+    private static final long serialVersionUID = 1355731239763962882L;
+
     private final E1 left;
     private final E2 right;
 
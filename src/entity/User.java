@@ -15,7 +15,19 @@ public class User extends Entity<UUID> {
      * @param lastName  Last name of the User
      */
     public User(String firstName, String lastName, String email) {
-        super(UUID.randomUUID());
+        this(UUID.randomUUID(), firstName, lastName, email);
+    }
+
+    /**
+     * Initializes a User with a known ID
+     *
+     * @param id        ID of the User
+     * @param firstName First name of the User
+     * @param lastName  Last name of the User
+     * @param email     Email of the User
+     */
+    public User(UUID id, String firstName, String lastName, String email) {
+        super(id);
         this.firstName = firstName;
         this.lastName = lastName;
         this.email = email;
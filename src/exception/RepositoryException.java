@@ -1,6 +1,10 @@
 package exception;
 
 public class RepositoryException extends RuntimeException {
+    public RepositoryException(String errorMessage, Throwable err) {
+        super("RepositoryException: " + errorMessage, err);
+    }
+
     public RepositoryException(String errorMessage) {
         super("RepositoryException: " + errorMessage);
     }
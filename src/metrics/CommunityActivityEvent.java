@@ -0,0 +1,34 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event of the measurement of the activity of one community. A network has many small communities,
+ * so by default only the measurements longer than a millisecond are recorded.
+ */
+@Name("reteadesocializare.CommunityActivity")
+@Label("Community Activity")
+@Category({"Retea de socializare", "Graph"})
+@Description("The measurement of the activity of one community")
+@Threshold("1 ms")
+@StackTrace(false)
+public class CommunityActivityEvent extends Event {
+    @Label("Strategy")
+    public String strategy;
+
+    @Label("Members")
+    public int members;
+
+    @Label("Friendships")
+    public int friendships;
+
+    @Label("Activity")
+    @Description("Longest path or diameter of the community")
+    public int activity;
+}
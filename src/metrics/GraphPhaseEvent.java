@@ -0,0 +1,39 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a phase of the search for the most active community: building the snapshot of the
+ * network, finding its communities or measuring their activity. The fields which don't apply to a phase are 0.
+ */
+@Name("reteadesocializare.GraphPhase")
+@Label("Graph Phase")
+@Category({"Retea de socializare", "Graph"})
+@Description("A phase of the search for the most active community")
+@StackTrace(false)
+public class GraphPhaseEvent extends Event {
+    @Label("Phase")
+    public String phase;
+
+    @Label("Strategy")
+    @Description("Metric by which the activity of the communities is measured")
+    public String strategy;
+
+    @Label("Vertices")
+    public int vertices;
+
+    @Label("Friendships")
+    public int friendships;
+
+    @Label("Communities")
+    public int communities;
+
+    @Label("Largest Community")
+    @Description("Number of members of the largest community")
+    public int largestCommunity;
+}
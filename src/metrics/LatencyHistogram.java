@@ -0,0 +1,102 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in nanoseconds, recorded without locks.
+ * Every power of two is split into four buckets, so a percentile is off by at most a quarter of its value; the
+ * bucket of a latency is found with a few bit operations, and the counters are LongAdders, which stripe the
+ * updates of concurrent threads over several cells.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKETS = SUB_BUCKETS + (63 - 2) * SUB_BUCKETS;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @return Bucket of a latency: the latencies below 4 have a bucket each, the others are split by their
+     * exponent and their two bits after the leading one.
+     */
+    static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(nanos, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - 2) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return Largest latency of a bucket.
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + 2;
+        long lower = (long) (SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS) << (exponent - 2);
+        return lower + (1L << (exponent - 2)) - 1;
+    }
+
+    /**
+     * Records a call.
+     *
+     * @param nanos  Latency of the call.
+     * @param failed true if the call threw an exception.
+     */
+    public void record(long nanos, boolean failed) {
+        this.buckets[bucket(nanos)].increment();
+        this.total.add(nanos);
+        this.max.accumulate(nanos);
+        if (failed) {
+            this.errors.increment();
+        }
+    }
+
+    /**
+     * Reads the counters; calls recorded during the read may be counted only in part of them.
+     *
+     * @param name Name of the measured operation.
+     * @return Statistics of the operation.
+     */
+    public OperationSnapshot snapshot(String name) {
+        long[] counts = new long[BUCKETS];
+        long calls = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = this.buckets[i].sum();
+            calls += counts[i];
+        }
+        long mean = calls == 0 ? 0 : this.total.sum() / calls;
+        return new OperationSnapshot(name, calls, this.errors.sum(), mean, percentile(counts, calls, 0.5),
+                percentile(counts, calls, 0.9), percentile(counts, calls, 0.99), this.max.get());
+    }
+
+    /**
+     * @return Upper bound of the bucket which holds the latency of the given rank.
+     */
+    private static long percentile(long[] counts, long calls, double fraction) {
+        if (calls == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * calls));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(counts.length - 1);
+    }
+}
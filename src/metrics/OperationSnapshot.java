@@ -0,0 +1,66 @@
+package metrics;
+
+/**
+ * Statistics of an operation at a moment: its calls, failed calls and latencies, in nanoseconds.
+ */
+public class OperationSnapshot {
+    private final String name;
+    private final long calls;
+    private final long errors;
+    private final long meanNanos;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long maxNanos;
+
+    public OperationSnapshot(String name, long calls, long errors, long meanNanos, long p50Nanos, long p90Nanos,
+                             long p99Nanos, long maxNanos) {
+        this.name = name;
+        this.calls = calls;
+        this.errors = errors;
+        this.meanNanos = meanNanos;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public long getCalls() {
+        return this.calls;
+    }
+
+    public long getErrors() {
+        return this.errors;
+    }
+
+    public long getMeanNanos() {
+        return this.meanNanos;
+    }
+
+    public long getP50Nanos() {
+        return this.p50Nanos;
+    }
+
+    public long getP90Nanos() {
+        return this.p90Nanos;
+    }
+
+    public long getP99Nanos() {
+        return this.p99Nanos;
+    }
+
+    public long getMaxNanos() {
+        return this.maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-30s calls=%d errors=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus max=%.1fus",
+                this.name, this.calls, this.errors, this.meanNanos / 1e3, this.p50Nanos / 1e3, this.p90Nanos / 1e3,
+                this.p99Nanos / 1e3, this.maxNanos / 1e3);
+    }
+}
@@ -0,0 +1,25 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a call to the service, with its duration and whether it failed.
+ */
+@Name("reteadesocializare.ServiceOperation")
+@Label("Service Operation")
+@Category({"Retea de socializare", "Service"})
+@Description("A call to a method of the service")
+@StackTrace(false)
+public class ServiceOperationEvent extends Event {
+    @Label("Operation")
+    public String operation;
+
+    @Label("Failed")
+    @Description("The call threw an exception")
+    public boolean failed;
+}
@@ -3,6 +3,10 @@ package repository;
 import entity.Entity;
 import exception.RepositoryException;
 
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * CRUD Operations for the repository interface.
  *
@@ -31,6 +35,37 @@ public interface AbstractRepository<ID, E extends Entity<ID>> {
      */
     Iterable<E> getAll();
 
+    /**
+     * Lists the entities one page at a time.
+     * The default implementation skips the entities before the position of the token, so reading a page costs as
+     * much as reading all the pages before it; repositories which can seek to a position override it.
+     *
+     * @param token Token of the page, from the previous page, or null for the first page.
+     * @param size  Maximum number of entities of the page.
+     * @return The page of entities.
+     * @throws IllegalArgumentException If the token is malformed, or the size isn't positive.
+     */
+    default Page<E> getPage(String token, int size) throws IllegalArgumentException {
+        Page.checkSize(size);
+        long position = Page.position(token);
+        Iterator<E> iterator = this.getAll().iterator();
+        for (long i = 0; i < position && iterator.hasNext(); i++) {
+            iterator.next();
+        }
+        List<E> items = new ArrayList<>(size);
+        while (items.size() < size && iterator.hasNext()) {
+            items.add(iterator.next());
+        }
+        return new Page<>(items, iterator.hasNext() ? Page.token(position + items.size()) : null);
+    }
+
+    /**
+     * @return Lazy stream of all the entities of the repository.
+     */
+    default Stream<E> stream() {
+        return StreamSupport.stream(this.getAll().spliterator(), false);
+    }
+
     /**
      * Searches for one entity in the repository.
      *
@@ -69,4 +104,94 @@ public interface AbstractRepository<ID, E extends Entity<ID>> {
      * @throws IllegalArgumentException If the id is null.
      */
     E update(E e) throws RepositoryException, IllegalArgumentException;
+
+    /**
+     * Adds several entities; either all of them are added, or none.
+     * The default implementation saves them one by one and deletes the saved ones if a save fails, so other threads
+     * may see a part of the batch.
+     *
+     * @param entities Entities that should be added.
+     * @throws RepositoryException      If an entity already exists, or the batch contains the same entity twice.
+     * @throws IllegalArgumentException If the collection or one of its entities is null.
+     */
+    default void saveAll(Collection<? extends E> entities) throws RepositoryException, IllegalArgumentException {
+        requireElements(entities, "Entities");
+        List<E> saved = new ArrayList<>(entities.size());
+        try {
+            for (E e : entities) {
+                this.save(e);
+                saved.add(e);
+            }
+        } catch (RepositoryException rE) {
+            for (E e : saved) {
+                this.delete(e.getId());
+            }
+            throw rE;
+        }
+    }
+
+    /**
+     * Searches for several entities.
+     *
+     * @param ids IDs of the entities to search.
+     * @return Entities with the IDs, in the order of the IDs.
+     * @throws RepositoryException      If an entity with one of the IDs doesn't exist.
+     * @throws IllegalArgumentException If the collection or one of its IDs is null.
+     */
+    default List<E> getMany(Collection<? extends ID> ids) throws RepositoryException, IllegalArgumentException {
+        requireElements(ids, "Ids");
+        List<E> found = new ArrayList<>(ids.size());
+        for (ID id : ids) {
+            found.add(this.getOne(id));
+        }
+        return found;
+    }
+
+    /**
+     * Removes several entities; either all of them are removed, or none.
+     * The default implementation checks that all of them exist, then deletes them one by one.
+     *
+     * @param ids IDs of the entities to remove.
+     * @return Removed entities, in the order of the IDs.
+     * @throws RepositoryException      If an entity with one of the IDs doesn't exist, or an ID appears twice.
+     * @throws IllegalArgumentException If the collection or one of its IDs is null.
+     */
+    default List<E> deleteAll(Collection<? extends ID> ids) throws RepositoryException, IllegalArgumentException {
+        requireElements(ids, "Ids");
+        if (new HashSet<>(ids).size() != ids.size()) {
+            throw new RepositoryException("The same id appears twice in the batch!");
+        }
+        List<E> removed = this.getMany(ids);
+        List<E> deleted = new ArrayList<>(removed.size());
+        try {
+            for (E e : removed) {
+                this.delete(e.getId());
+                deleted.add(e);
+            }
+        } catch (RepositoryException rE) {
+            for (E e : deleted) {
+                this.save(e);
+            }
+            throw rE;
+        }
+        return removed;
+    }
+
+    /**
+     * Checks that a batch and its elements aren't null.
+     *
+     * @param batch Collection of entities or IDs.
+     * @param name  Name of the elements, for the error message.
+     * @throws IllegalArgumentException If the collection or one of its elements is null.
+     */
+    static void requireElements(Collection<?> batch, String name) throws IllegalArgumentException {
+        if (batch == null) {
+            throw new IllegalArgumentException(name + " cannot be null!");
+        }
+        for (Object element : batch) {
+            if (element == null) {
+                throw new IllegalArgumentException(name + " cannot contain null!");
+            }
+        }
+    }
 }
@@ -0,0 +1,261 @@
+package repository;
+
+import entity.Entity;
+import exception.RepositoryException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Thread-safe repository. Every operation is a single atomic step on the entry of an entity in a ConcurrentHashMap,
+ * so there is no global lock. Every saved entity also gets a sequence number, and a skip list keeps the entities in
+ * the order of their numbers: getAll() iterates it without locking, reflecting some or all of the concurrent changes,
+ * and a page token is a sequence number, so a page starts with a seek and deletes never move the other entities.
+ */
+public class ConcurrentRepository<ID, E extends Entity<ID>> implements AbstractRepository<ID, E> {
+    private final Map<ID, Slot<E>> entities;
+    /**
+     * The entities by sequence number; changed only while holding the entry of the entity in entities.
+     */
+    private final ConcurrentSkipListMap<Long, E> order = new ConcurrentSkipListMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    /**
+     * Extracts the natural key of an entity. When null, duplicates are detected by comparing the entity against
+     * every stored entity, which doesn't see entities saved concurrently.
+     */
+    private final Function<? super E, ?> naturalKey;
+    private final Map<Object, ID> naturalKeys;
+
+    /**
+     * A stored entity and its sequence number.
+     */
+    private record Slot<E>(long sequence, E entity) {
+    }
+
+    public ConcurrentRepository() {
+        this.entities = new ConcurrentHashMap<>();
+        this.naturalKey = null;
+        this.naturalKeys = null;
+    }
+
+    /**
+     * Initializes a repository which detects duplicate entities through a hash index on their natural key,
+     * atomically with respect to concurrent saves.
+     *
+     * @param naturalKey Function that extracts the natural key of an entity; it must agree with the equals
+     *                   method of the entity (see {@link NaturalKeys}).
+     */
+    public ConcurrentRepository(Function<? super E, ?> naturalKey) {
+        if (naturalKey == null) {
+            throw new IllegalArgumentException("Natural key cannot be null!");
+        }
+        this.entities = new ConcurrentHashMap<>();
+        this.naturalKey = naturalKey;
+        this.naturalKeys = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Checks if the repository is empty.
+     *
+     * @return true if the repository is empty, false otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return this.entities.isEmpty();
+    }
+
+    /**
+     * Size of the repository.
+     *
+     * @return Number of entities E stored in the repository.
+     */
+    @Override
+    public int size() {
+        return this.entities.size();
+    }
+
+    /**
+     * All the contents of the repository.
+     *
+     * @return All the values stored in the repository, in the order they were saved; the iteration is weakly
+     * consistent.
+     */
+    @Override
+    public Iterable<E> getAll() {
+        return this.order.values();
+    }
+
+    /**
+     * Lists the entities one page at a time, starting at the sequence number of the token. Entities saved while
+     * the pages are read appear on a later page, or not at all if they are saved behind the token.
+     *
+     * @param token Token of the page, from the previous page, or null for the first page.
+     * @param size  Maximum number of entities of the page.
+     * @return The page of entities.
+     * @throws IllegalArgumentException If the token is malformed, or the size isn't positive.
+     */
+    @Override
+    public Page<E> getPage(String token, int size) throws IllegalArgumentException {
+        Page.checkSize(size);
+        Iterator<Map.Entry<Long, E>> iterator = this.order.tailMap(Page.position(token)).entrySet().iterator();
+        List<E> items = new ArrayList<>(Math.min(size, this.size()));
+        long next = 0;
+        while (items.size() < size && iterator.hasNext()) {
+            Map.Entry<Long, E> entry = iterator.next();
+            items.add(entry.getValue());
+            next = entry.getKey() + 1;
+        }
+        return new Page<>(items, iterator.hasNext() ? Page.token(next) : null);
+    }
+
+    /**
+     * Searches for one entity in the repository.
+     *
+     * @param id ID of the Entity to search
+     * @return Entity with its ID equal to id
+     * @throws RepositoryException      If the entity with the specified ID doesn't exist
+     * @throws IllegalArgumentException If the id is null
+     */
+    @Override
+    public E getOne(ID id) throws RepositoryException, IllegalArgumentException {
+        if (id == null) {
+            throw new IllegalArgumentException("The id cannot be null!");
+        }
+        Slot<E> slot = this.entities.get(id);
+        if (slot == null) {
+            throw new RepositoryException("Entity with the specified id doesn't exist!");
+        }
+        return slot.entity();
+    }
+
+    /**
+     * Adds an entity to the repository.
+     *
+     * @param e Entity that should be added
+     * @throws RepositoryException      If the entity that should be added already exists.
+     * @throws IllegalArgumentException If the entity is null.
+     */
+    @Override
+    public void save(E e) throws RepositoryException, IllegalArgumentException {
+        if (e == null) {
+            throw new IllegalArgumentException("Entity cannot be null!");
+        }
+        if (this.entities.containsKey(e.getId())) {
+            throw new RepositoryException("An entity with the same id is already stored!");
+        }
+
+        Object key = null;
+        if (this.naturalKey != null) {
+            key = this.naturalKey.apply(e);
+            if (this.naturalKeys.putIfAbsent(key, e.getId()) != null) {
+                throw new RepositoryException("The same entity is already stored!");
+            }
+        } else {
+            for (Entity<ID> entity : this.order.values()) {
+                if (entity.equals(e)) {
+                    throw new RepositoryException("The same entity is already stored!");
+                }
+            }
+        }
+
+        boolean[] saved = new boolean[1];
+        this.entities.computeIfAbsent(e.getId(), id -> {
+            long number = this.sequence.getAndIncrement();
+            this.order.put(number, e);
+            saved[0] = true;
+            return new Slot<>(number, e);
+        });
+        if (!saved[0]) {
+            // another thread saved an entity with the same id in the meantime
+            if (key != null) {
+                this.naturalKeys.remove(key, e.getId());
+            }
+            throw new RepositoryException("An entity with the same id is already stored!");
+        }
+    }
+
+    /**
+     * Removes the natural key of an entity from the index, if it still points to the entity.
+     *
+     * @param e Entity whose key should be removed.
+     */
+    private void unindex(E e) {
+        if (this.naturalKey != null) {
+            this.naturalKeys.remove(this.naturalKey.apply(e), e.getId());
+        }
+    }
+
+    /**
+     * Removes an entity from the repository
+     *
+     * @param id ID of the entity to remove.
+     * @return Removed entity.
+     * @throws RepositoryException      If the entity with the specified ID doesn't exist.
+     * @throws IllegalArgumentException If the id is null.
+     */
+    @Override
+    public E delete(ID id) throws RepositoryException, IllegalArgumentException {
+        if (id == null) {
+            throw new IllegalArgumentException("Id cannot be null!");
+        }
+        Object[] removed = new Object[1];
+        this.entities.computeIfPresent(id, (key, slot) -> {
+            this.order.remove(slot.sequence());
+            removed[0] = slot.entity();
+            return null;
+        });
+        if (removed[0] == null) {
+            throw new RepositoryException("Entity with the specified id doesn't exist!");
+        }
+        @SuppressWarnings("unchecked")
+        E entity = (E) removed[0];
+        this.unindex(entity);
+        return entity;
+    }
+
+    /**
+     * Updates and entity. The update is a single atomic step on the entry of the entity, so it can't interleave
+     * with a concurrent delete or update of the same entity.
+     *
+     * @param e New entity.
+     * @return The entity before update.
+     * @throws RepositoryException      If the entity with the specified ID doesn't exist, or another entity
+     *                                  with the same natural key is already stored.
+     * @throws IllegalArgumentException If the e is null.
+     */
+    @Override
+    public E update(E e) throws RepositoryException, IllegalArgumentException {
+        if (e == null) {
+            throw new IllegalArgumentException("Id cannot be null!");
+        }
+        Object[] old = new Object[1];
+        this.entities.compute(e.getId(), (id, slot) -> {
+            if (slot == null) {
+                throw new RepositoryException("Entity with the specified id doesn't exist!");
+            }
+            E current = slot.entity();
+            if (this.naturalKey != null) {
+                Object oldKey = this.naturalKey.apply(current);
+                Object newKey = this.naturalKey.apply(e);
+                if (!oldKey.equals(newKey)) {
+                    if (this.naturalKeys.putIfAbsent(newKey, id) != null) {
+                        throw new RepositoryException("The same entity is already stored!");
+                    }
+                    this.naturalKeys.remove(oldKey, id);
+                }
+            }
+            old[0] = current;
+            this.order.put(slot.sequence(), e);
+            return new Slot<>(slot.sequence(), e);
+        });
+        @SuppressWarnings("unchecked")
+        E previous = (E) old[0];
+        return previous;
+    }
+}
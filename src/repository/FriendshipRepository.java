@@ -0,0 +1,64 @@
+package repository;
+
+import entity.Friendship;
+import entity.FriendshipKey;
+import exception.RepositoryException;
+
+import java.util.UUID;
+
+/**
+ * Repository of friendships which can also find a friendship from the bits of the IDs of its users, given in any
+ * order. The default methods build the canonical key; repositories which can probe without one override them.
+ */
+public interface FriendshipRepository extends AbstractRepository<FriendshipKey, Friendship> {
+    /**
+     * Searches for one friendship from the bits of the IDs of its users, given in any order.
+     *
+     * @param high1 Most significant bits of the ID of one user.
+     * @param low1  Least significant bits of the ID of one user.
+     * @param high2 Most significant bits of the ID of the other user.
+     * @param low2  Least significant bits of the ID of the other user.
+     * @return The friendship, or null if it doesn't exist.
+     */
+    default Friendship getOne(long high1, long low1, long high2, long low2) {
+        try {
+            return this.getOne(Friendship.key(new UUID(high1, low1), new UUID(high2, low2)));
+        } catch (RepositoryException rE) {
+            return null;
+        }
+    }
+
+    /**
+     * Removes one friendship given by the bits of the IDs of its users, in any order.
+     *
+     * @param high1 Most significant bits of the ID of one user.
+     * @param low1  Least significant bits of the ID of one user.
+     * @param high2 Most significant bits of the ID of the other user.
+     * @param low2  Least significant bits of the ID of the other user.
+     * @return The removed friendship, or null if it doesn't exist.
+     */
+    default Friendship delete(long high1, long low1, long high2, long low2) {
+        try {
+            return this.delete(Friendship.key(new UUID(high1, low1), new UUID(high2, low2)));
+        } catch (RepositoryException rE) {
+            return null;
+        }
+    }
+
+    /**
+     * Views any repository of friendships as a FriendshipRepository.
+     *
+     * @param repository Repository of friendships.
+     * @return The repository itself if it is a FriendshipRepository, or a view which delegates to it otherwise.
+     * @throws IllegalArgumentException If the repository is null.
+     */
+    static FriendshipRepository of(AbstractRepository<FriendshipKey, Friendship> repository) throws IllegalArgumentException {
+        if (repository == null) {
+            throw new IllegalArgumentException("Repository cannot be null!");
+        }
+        if (repository instanceof FriendshipRepository friendships) {
+            return friendships;
+        }
+        return new FriendshipRepositoryView(repository);
+    }
+}
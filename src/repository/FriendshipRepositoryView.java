@@ -0,0 +1,81 @@
+package repository;
+
+import entity.Friendship;
+import entity.FriendshipKey;
+import exception.RepositoryException;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * FriendshipRepository which delegates every operation to another repository of friendships, so that the batch
+ * operations and pages of the repository keep their own implementations.
+ */
+final class FriendshipRepositoryView implements FriendshipRepository {
+    private final AbstractRepository<FriendshipKey, Friendship> repository;
+
+    FriendshipRepositoryView(AbstractRepository<FriendshipKey, Friendship> repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.repository.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return this.repository.size();
+    }
+
+    @Override
+    public Iterable<Friendship> getAll() {
+        return this.repository.getAll();
+    }
+
+    @Override
+    public Page<Friendship> getPage(String token, int size) throws IllegalArgumentException {
+        return this.repository.getPage(token, size);
+    }
+
+    @Override
+    public Stream<Friendship> stream() {
+        return this.repository.stream();
+    }
+
+    @Override
+    public Friendship getOne(FriendshipKey id) throws RepositoryException, IllegalArgumentException {
+        return this.repository.getOne(id);
+    }
+
+    @Override
+    public void save(Friendship friendship) throws RepositoryException, IllegalArgumentException {
+        this.repository.save(friendship);
+    }
+
+    @Override
+    public Friendship delete(FriendshipKey id) throws RepositoryException, IllegalArgumentException {
+        return this.repository.delete(id);
+    }
+
+    @Override
+    public Friendship update(Friendship friendship) throws RepositoryException, IllegalArgumentException {
+        return this.repository.update(friendship);
+    }
+
+    @Override
+    public void saveAll(Collection<? extends Friendship> friendships) throws RepositoryException, IllegalArgumentException {
+        this.repository.saveAll(friendships);
+    }
+
+    @Override
+    public List<Friendship> getMany(Collection<? extends FriendshipKey> ids) throws RepositoryException, IllegalArgumentException {
+        return this.repository.getMany(ids);
+    }
+
+    @Override
+    public List<Friendship> deleteAll(Collection<? extends FriendshipKey> ids) throws RepositoryException, IllegalArgumentException {
+        return this.repository.deleteAll(ids);
+    }
+}
@@ -0,0 +1,318 @@
+package repository;
+
+import entity.Friendship;
+import entity.FriendshipKey;
+import exception.RepositoryException;
+
+import java.util.*;
+
+/**
+ * In memory repository of friendships, kept in an open-addressing hash table with linear probing.
+ * A slot holds only the friendship; a probe compares the longs and the precomputed hash of its FriendshipKey, so a
+ * friendship can be found from the bits of the IDs of its users without creating a key, with
+ * {@link #getOne(long, long, long, long)}.
+ * A deleted friendship leaves a tombstone, so deletes never move other friendships; the tombstones are dropped when
+ * the table is rebuilt. A friendship is a duplicate exactly when its ID is already stored. The repository isn't
+ * thread-safe.
+ */
+public class InMemoryFriendshipRepository implements FriendshipRepository {
+    private static final int MIN_CAPACITY = 16;
+    /**
+     * Marks the slot of a deleted friendship; compared by identity.
+     */
+    private static final Friendship TOMBSTONE = new Friendship(new UUID(0, 0), new UUID(0, 0), null);
+
+    private Friendship[] values = new Friendship[MIN_CAPACITY];
+    private int size = 0;
+    private int tombstones = 0;
+
+    private static int slotOf(int hash, int mask) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static boolean isLive(Friendship friendship) {
+        return friendship != null && friendship != TOMBSTONE;
+    }
+
+    /**
+     * @return Slot of the friendship with the key given by its bits, or -1 if there is none.
+     */
+    private int find(long leftHigh, long leftLow, long rightHigh, long rightLow) {
+        int hash = FriendshipKey.hash(leftHigh, leftLow, rightHigh, rightLow);
+        int mask = this.values.length - 1;
+        for (int slot = slotOf(hash, mask); this.values[slot] != null; slot = (slot + 1) & mask) {
+            Friendship friendship = this.values[slot];
+            if (friendship != TOMBSTONE) {
+                FriendshipKey key = friendship.getId();
+                if (key.hashCode() == hash && key.matches(leftHigh, leftLow, rightHigh, rightLow)) {
+                    return slot;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private int find(FriendshipKey key) {
+        return this.find(key.getLeftHigh(), key.getLeftLow(), key.getRightHigh(), key.getRightLow());
+    }
+
+    /**
+     * Puts a friendship whose key isn't stored yet into the first free slot or tombstone of its probe sequence.
+     */
+    private void insert(Friendship friendship) {
+        int mask = this.values.length - 1;
+        int slot = slotOf(friendship.getId().hashCode(), mask);
+        while (isLive(this.values[slot])) {
+            slot = (slot + 1) & mask;
+        }
+        if (this.values[slot] == TOMBSTONE) {
+            this.tombstones--;
+        }
+        this.values[slot] = friendship;
+    }
+
+    /**
+     * Makes room for count more friendships, so that live slots and tombstones fill at most half of the table.
+     * The table is rebuilt without tombstones, at twice the capacity if the live friendships alone need it.
+     */
+    private void reserve(int count) {
+        long needed = (long) this.size + count;
+        if ((needed + this.tombstones) * 2 <= this.values.length) {
+            return;
+        }
+        int capacity = this.values.length;
+        while (needed * 2 > capacity) {
+            if (capacity >= 1 << 30) {
+                throw new RepositoryException("Repository is full!");
+            }
+            capacity *= 2;
+        }
+        Friendship[] old = this.values;
+        this.values = new Friendship[capacity];
+        this.tombstones = 0;
+        for (Friendship friendship : old) {
+            if (isLive(friendship)) {
+                this.insert(friendship);
+            }
+        }
+    }
+
+    /**
+     * Empties a slot, leaving a tombstone so that no probe sequence is broken and no friendship moves.
+     */
+    private void removeSlot(int slot) {
+        this.values[slot] = TOMBSTONE;
+        this.size--;
+        this.tombstones++;
+    }
+
+    /**
+     * Checks if the repository is empty.
+     *
+     * @return true if the repository is empty, false otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Size of the repository.
+     *
+     * @return Number of entities E stored in the repository.
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * All the contents of the repository.
+     *
+     * @return All the values stored in the repository.
+     */
+    @Override
+    public Iterable<Friendship> getAll() {
+        return () -> Arrays.stream(this.values).filter(InMemoryFriendshipRepository::isLive).iterator();
+    }
+
+    /**
+     * Lists the friendships one page at a time, starting at the slot of the token. Deletes leave the other
+     * friendships in their slots, but rebuilding the table, when it grows or drops its tombstones, moves them,
+     * so a page read after a rebuild may repeat or skip friendships.
+     *
+     * @param token Token of the page, from the previous page, or null for the first page.
+     * @param size  Maximum number of friendships of the page.
+     * @return The page of friendships.
+     * @throws IllegalArgumentException If the token is malformed, or the size isn't positive.
+     */
+    @Override
+    public Page<Friendship> getPage(String token, int size) throws IllegalArgumentException {
+        Page.checkSize(size);
+        int slot = (int) Math.min(Page.position(token), this.values.length);
+        List<Friendship> items = new ArrayList<>(Math.min(size, this.size));
+        for (; slot < this.values.length && items.size() < size; slot++) {
+            if (isLive(this.values[slot])) {
+                items.add(this.values[slot]);
+            }
+        }
+        while (slot < this.values.length && !isLive(this.values[slot])) {
+            slot++;
+        }
+        return new Page<>(items, slot < this.values.length ? Page.token(slot) : null);
+    }
+
+    /**
+     * Searches for one friendship from the bits of the IDs of its users, given in any order, without allocating.
+     * The IDs are put in ascending order, as in {@link Friendship#key}, so only canonical friendships are found.
+     *
+     * @param high1 Most significant bits of the ID of one user.
+     * @param low1  Least significant bits of the ID of one user.
+     * @param high2 Most significant bits of the ID of the other user.
+     * @param low2  Least significant bits of the ID of the other user.
+     * @return The friendship, or null if it doesn't exist.
+     */
+    @Override
+    public Friendship getOne(long high1, long low1, long high2, long low2) {
+        int slot = this.findCanonical(high1, low1, high2, low2);
+        return slot < 0 ? null : this.values[slot];
+    }
+
+    /**
+     * Removes one friendship given by the bits of the IDs of its users, in any order, without allocating.
+     *
+     * @param high1 Most significant bits of the ID of one user.
+     * @param low1  Least significant bits of the ID of one user.
+     * @param high2 Most significant bits of the ID of the other user.
+     * @param low2  Least significant bits of the ID of the other user.
+     * @return The removed friendship, or null if it doesn't exist.
+     */
+    @Override
+    public Friendship delete(long high1, long low1, long high2, long low2) {
+        int slot = this.findCanonical(high1, low1, high2, low2);
+        if (slot < 0) {
+            return null;
+        }
+        Friendship removed = this.values[slot];
+        this.removeSlot(slot);
+        return removed;
+    }
+
+    /**
+     * @return Slot of the friendship between two users given in any order, or -1 if there is none.
+     */
+    private int findCanonical(long high1, long low1, long high2, long low2) {
+        // same order as UUID.compareTo: signed, most significant bits first
+        if (high1 > high2 || (high1 == high2 && low1 > low2)) {
+            return this.find(high2, low2, high1, low1);
+        }
+        return this.find(high1, low1, high2, low2);
+    }
+
+    /**
+     * Searches for one entity in the repository.
+     *
+     * @param id ID of the Entity to search
+     * @return Entity with its ID equal to id
+     * @throws RepositoryException      If the entity with the specified ID doesn't exist
+     * @throws IllegalArgumentException If the id is null
+     */
+    @Override
+    public Friendship getOne(FriendshipKey id) throws RepositoryException, IllegalArgumentException {
+        if (id == null) {
+            throw new IllegalArgumentException("The id cannot be null!");
+        }
+        int slot = this.find(id);
+        if (slot < 0) {
+            throw new RepositoryException("Entity with the specified id doesn't exist!");
+        }
+        return this.values[slot];
+    }
+
+    /**
+     * Adds an entity to the repository.
+     *
+     * @param friendship Entity that should be added
+     * @throws RepositoryException      If the entity that should be added already exists.
+     * @throws IllegalArgumentException If the entity is null.
+     */
+    @Override
+    public void save(Friendship friendship) throws RepositoryException, IllegalArgumentException {
+        if (friendship == null) {
+            throw new IllegalArgumentException("Entity cannot be null!");
+        }
+        if (this.find(friendship.getId()) >= 0) {
+            throw new RepositoryException("The same entity is already stored!");
+        }
+        this.reserve(1);
+        this.insert(friendship);
+        this.size++;
+    }
+
+    /**
+     * Adds several entities; either all of them are added, or none. The table grows at most once for the batch.
+     *
+     * @param friendships Entities that should be added.
+     * @throws RepositoryException      If an entity already exists, or the batch contains the same entity twice.
+     * @throws IllegalArgumentException If the collection or one of its entities is null.
+     */
+    @Override
+    public void saveAll(Collection<? extends Friendship> friendships) throws RepositoryException, IllegalArgumentException {
+        AbstractRepository.requireElements(friendships, "Entities");
+        Set<FriendshipKey> ids = new HashSet<>();
+        for (Friendship friendship : friendships) {
+            if (!ids.add(friendship.getId()) || this.find(friendship.getId()) >= 0) {
+                throw new RepositoryException("The same entity is already stored!");
+            }
+        }
+        this.reserve(friendships.size());
+        for (Friendship friendship : friendships) {
+            this.insert(friendship);
+        }
+        this.size += friendships.size();
+    }
+
+    /**
+     * Removes an entity from the repository
+     *
+     * @param id ID of the entity to remove.
+     * @return Removed entity.
+     * @throws RepositoryException      If the entity with the specified ID doesn't exist.
+     * @throws IllegalArgumentException If the id is null.
+     */
+    @Override
+    public Friendship delete(FriendshipKey id) throws RepositoryException, IllegalArgumentException {
+        if (id == null) {
+            throw new IllegalArgumentException("Id cannot be null!");
+        }
+        int slot = this.find(id);
+        if (slot < 0) {
+            throw new RepositoryException("Entity with the specified id doesn't exist!");
+        }
+        Friendship removed = this.values[slot];
+        this.removeSlot(slot);
+        return removed;
+    }
+
+    /**
+     * Updates and entity.
+     *
+     * @param friendship New entity.
+     * @return The entity before update.
+     * @throws RepositoryException      If the entity with the specified ID doesn't exist.
+     * @throws IllegalArgumentException If the e is null.
+     */
+    @Override
+    public Friendship update(Friendship friendship) throws RepositoryException, IllegalArgumentException {
+        if (friendship == null) {
+            throw new IllegalArgumentException("Id cannot be null!");
+        }
+        int slot = this.find(friendship.getId());
+        if (slot < 0) {
+            throw new RepositoryException("Entity with the specified id doesn't exist!");
+        }
+        Friendship old = this.values[slot];
+        this.values[slot] = friendship;
+        return old;
+    }
+}
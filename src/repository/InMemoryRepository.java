@@ -3,16 +3,121 @@ package repository;
 import entity.Entity;
 import exception.RepositoryException;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 public class InMemoryRepository<ID, E extends Entity<ID>> implements AbstractRepository<ID, E> {
-    private final Map<ID, E> entities;
+    /**
+     * Entities by slot. A removed entity leaves an empty slot, which is reused by a later save; pages are read
+     * in slot order, so the token of a page is the slot at which it starts.
+     */
+    private final ArrayList<E> entities;
+    /**
+     * Slots by ID. UUIDs are indexed by a primitive table; the index is chosen from the first saved ID, and
+     * replaced by a HashMap if an ID of another type is saved later.
+     */
+    private SlotIndex<ID> slots;
+    private int[] freeSlots = new int[8];
+    private int freeCount = 0;
+    /**
+     * Extracts the natural key of an entity. Two entities are duplicates iff their natural keys are equal.
+     * When null, duplicates are detected by comparing the entity against every stored entity.
+     */
+    private final Function<? super E, ?> naturalKey;
+    private final Map<Object, ID> naturalKeys;
 
     public InMemoryRepository() {
-        this.entities = new HashMap<>();
+        this.entities = new ArrayList<>();
+        this.slots = null;
+        this.naturalKey = null;
+        this.naturalKeys = null;
+    }
+
+    /**
+     * Initializes a repository which detects duplicate entities through a hash index on their natural key.
+     *
+     * @param naturalKey Function that extracts the natural key of an entity; it must agree with the equals
+     *                   method of the entity (see {@link NaturalKeys}).
+     */
+    public InMemoryRepository(Function<? super E, ?> naturalKey) {
+        if (naturalKey == null) {
+            throw new IllegalArgumentException("Natural key cannot be null!");
+        }
+        this.entities = new ArrayList<>();
+        this.slots = null;
+        this.naturalKey = naturalKey;
+        this.naturalKeys = new HashMap<>();
+    }
+
+    /**
+     * @param id ID of an entity.
+     * @return The entity with the ID, or null if there is none.
+     */
+    private E find(ID id) {
+        int slot = this.slot(id);
+        return slot == SlotIndex.NONE ? null : this.entities.get(slot);
+    }
+
+    /**
+     * @param id ID of an entity.
+     * @return The slot of the entity with the ID, or NONE if there is none.
+     */
+    private int slot(Object id) {
+        return this.slots == null ? SlotIndex.NONE : this.slots.get(id);
+    }
+
+    /**
+     * Makes sure that the index can hold the ID.
+     */
+    @SuppressWarnings("unchecked")
+    private void indexFor(ID id) {
+        if (this.slots == null) {
+            this.slots = id instanceof UUID ? (SlotIndex<ID>) new UuidSlotIndex() : new SlotIndex.Hashed<>();
+        } else if (this.slots instanceof UuidSlotIndex && !(id instanceof UUID)) {
+            SlotIndex<ID> hashed = new SlotIndex.Hashed<>();
+            for (int slot = 0; slot < this.entities.size(); slot++) {
+                E e = this.entities.get(slot);
+                if (e != null) {
+                    hashed.put(e.getId(), slot);
+                }
+            }
+            this.slots = hashed;
+        }
     }
 
+    /**
+     * Stores an entity whose ID isn't stored yet, in a free slot if there is one.
+     */
+    private void store(E e) {
+        int slot;
+        if (this.freeCount > 0) {
+            slot = this.freeSlots[--this.freeCount];
+            this.entities.set(slot, e);
+        } else {
+            slot = this.entities.size();
+            this.entities.add(e);
+        }
+        this.indexFor(e.getId());
+        this.slots.put(e.getId(), slot);
+    }
+
+    /**
+     * Removes an entity and frees its slot.
+     *
+     * @return The removed entity, or null if there is none with the ID.
+     */
+    private E remove(ID id) {
+        int slot = this.slots == null ? SlotIndex.NONE : this.slots.remove(id);
+        if (slot == SlotIndex.NONE) {
+            return null;
+        }
+        if (this.freeCount == this.freeSlots.length) {
+            this.freeSlots = Arrays.copyOf(this.freeSlots, this.freeCount * 2);
+        }
+        this.freeSlots[this.freeCount++] = slot;
+        return this.entities.set(slot, null);
+    }
 
     /**
      * Checks if the repository is empty.
@@ -21,7 +126,7 @@ public class InMemoryRepository<ID, E extends Entity<ID>> implements AbstractRep
      */
     @Override
     public boolean isEmpty() {
-        return this.entities.isEmpty();
+        return this.size() == 0;
     }
 
     /**
@@ -31,7 +136,7 @@ public class InMemoryRepository<ID, E extends Entity<ID>> implements AbstractRep
      */
     @Override
     public int size() {
-        return this.entities.values().size();
+        return this.slots == null ? 0 : this.slots.size();
     }
 
     /**
@@ -41,7 +146,41 @@ public class InMemoryRepository<ID, E extends Entity<ID>> implements AbstractRep
      */
     @Override
     public Iterable<E> getAll() {
-        return this.entities.values();
+        return () -> this.stream().iterator();
+    }
+
+    /**
+     * @return Lazy stream of all the entities of the repository, in slot order.
+     */
+    @Override
+    public Stream<E> stream() {
+        return this.entities.stream().filter(Objects::nonNull);
+    }
+
+    /**
+     * Lists the entities one page at a time, starting at the slot of the token.
+     *
+     * @param token Token of the page, from the previous page, or null for the first page.
+     * @param size  Maximum number of entities of the page.
+     * @return The page of entities.
+     * @throws IllegalArgumentException If the token is malformed, or the size isn't positive.
+     */
+    @Override
+    public Page<E> getPage(String token, int size) throws IllegalArgumentException {
+        Page.checkSize(size);
+        long position = Page.position(token);
+        int slot = (int) Math.min(position, this.entities.size());
+        List<E> items = new ArrayList<>(Math.min(size, this.size()));
+        for (; slot < this.entities.size() && items.size() < size; slot++) {
+            E e = this.entities.get(slot);
+            if (e != null) {
+                items.add(e);
+            }
+        }
+        while (slot < this.entities.size() && this.entities.get(slot) == null) {
+            slot++;
+        }
+        return new Page<>(items, slot < this.entities.size() ? Page.token(slot) : null);
     }
 
     /**
@@ -58,10 +197,11 @@ public class InMemoryRepository<ID, E extends Entity<ID>> implements AbstractRep
         if (id == null) {
             throw new IllegalArgumentException("The id cannot be null!");
         }
-        if (this.entities.get(id) == null) {
+        E e = this.find(id);
+        if (e == null) {
             throw new RepositoryException("Entity with the specified id doesn't exist!");
         }
-        return this.entities.get(id);
+        return e;
     }
 
     /**
@@ -76,16 +216,29 @@ public class InMemoryRepository<ID, E extends Entity<ID>> implements AbstractRep
         if (e == null) {
             throw new IllegalArgumentException("Entity cannot be null!");
         }
-        if (this.entities.get(e.getId()) != null) {
+        if (this.slot(e.getId()) != SlotIndex.NONE) {
             throw new RepositoryException("An entity with the same id is already stored!");
+        } else if (this.naturalKey != null) {
+            if (this.naturalKeys.putIfAbsent(this.naturalKey.apply(e), e.getId()) != null) {
+                throw new RepositoryException("The same entity is already stored!");
+            }
         } else {
-            for (Entity<ID> entity : this.entities.values()) {
-                if (entity.equals(e)) {
-                    throw new RepositoryException("The same entity is already stored!");
-                }
+            if (this.stream().anyMatch(e::equals)) {
+                throw new RepositoryException("The same entity is already stored!");
             }
         }
-        this.entities.put(e.getId(), e);
+        this.store(e);
+    }
+
+    /**
+     * Removes the natural key of an entity from the index, if it still points to the entity.
+     *
+     * @param e Entity whose key should be removed.
+     */
+    private void unindex(E e) {
+        if (this.naturalKey != null && e != null) {
+            this.naturalKeys.remove(this.naturalKey.apply(e), e.getId());
+        }
     }
 
 
@@ -102,19 +255,23 @@ public class InMemoryRepository<ID, E extends Entity<ID>> implements AbstractRep
         if (id == null) {
             throw new IllegalArgumentException("Id cannot be null!");
         }
-        if (this.entities.get(id) == null) {
+        E removed = this.remove(id);
+        if (removed == null) {
             throw new RepositoryException("Entity with the specified id doesn't exist!");
         }
-
-        return this.entities.remove(id);
+        this.unindex(removed);
+        return removed;
     }
 
     /**
-     * Updates and entity.
+     * Updates and entity. The natural key is taken from the stored entity, so a stored entity which is changed
+     * through its setters instead of being replaced by an update keeps its old key in the index, and a duplicate
+     * of its new content can then be saved.
      *
      * @param e New entity.
      * @return The entity before update.
-     * @throws RepositoryException      If the entity with the specified ID doesn't exist.
+     * @throws RepositoryException      If the entity with the specified ID doesn't exist, or another entity
+     *                                  with the same natural key is already stored.
      * @throws IllegalArgumentException If the e is null.
      */
     @Override
@@ -122,9 +279,99 @@ public class InMemoryRepository<ID, E extends Entity<ID>> implements AbstractRep
         if (e == null) {
             throw new IllegalArgumentException("Id cannot be null!");
         }
-        if (this.entities.get(e.getId()) == null) {
+        int slot = this.slot(e.getId());
+        if (slot == SlotIndex.NONE) {
             throw new RepositoryException("Entity with the specified id doesn't exist!");
         }
-        return this.entities.put(e.getId(), e);
+        E old = this.entities.get(slot);
+        if (this.naturalKey != null) {
+            Object oldKey = this.naturalKey.apply(old);
+            Object newKey = this.naturalKey.apply(e);
+            if (!oldKey.equals(newKey)) {
+                if (this.naturalKeys.putIfAbsent(newKey, e.getId()) != null) {
+                    throw new RepositoryException("The same entity is already stored!");
+                }
+                this.naturalKeys.remove(oldKey, e.getId());
+            }
+        }
+        this.entities.set(slot, e);
+        return old;
+    }
+
+    /**
+     * Adds several entities; either all of them are added, or none.
+     * The whole batch is checked for duplicates before the first entity is added.
+     *
+     * @param entities Entities that should be added.
+     * @throws RepositoryException      If an entity already exists, or the batch contains the same entity twice.
+     * @throws IllegalArgumentException If the collection or one of its entities is null.
+     */
+    @Override
+    public void saveAll(Collection<? extends E> entities) throws RepositoryException, IllegalArgumentException {
+        AbstractRepository.requireElements(entities, "Entities");
+        Set<ID> ids = new HashSet<>();
+        for (E e : entities) {
+            if (this.slot(e.getId()) != SlotIndex.NONE || !ids.add(e.getId())) {
+                throw new RepositoryException("An entity with the same id is already stored!");
+            }
+        }
+
+        List<Object> keys = new ArrayList<>(entities.size());
+        if (this.naturalKey != null) {
+            Set<Object> batchKeys = new HashSet<>();
+            for (E e : entities) {
+                Object key = this.naturalKey.apply(e);
+                if (this.naturalKeys.containsKey(key) || !batchKeys.add(key)) {
+                    throw new RepositoryException("The same entity is already stored!");
+                }
+                keys.add(key);
+            }
+        } else {
+            List<E> checked = new ArrayList<>(entities.size());
+            for (E e : entities) {
+                if (checked.contains(e) || this.stream().anyMatch(e::equals)) {
+                    throw new RepositoryException("The same entity is already stored!");
+                }
+                checked.add(e);
+            }
+        }
+
+        int i = 0;
+        for (E e : entities) {
+            this.store(e);
+            if (this.naturalKey != null) {
+                this.naturalKeys.put(keys.get(i++), e.getId());
+            }
+        }
+    }
+
+    /**
+     * Removes several entities; either all of them are removed, or none.
+     *
+     * @param ids IDs of the entities to remove.
+     * @return Removed entities, in the order of the IDs.
+     * @throws RepositoryException      If an entity with one of the IDs doesn't exist, or an ID appears twice.
+     * @throws IllegalArgumentException If the collection or one of its IDs is null.
+     */
+    @Override
+    public List<E> deleteAll(Collection<? extends ID> ids) throws RepositoryException, IllegalArgumentException {
+        AbstractRepository.requireElements(ids, "Ids");
+        Set<ID> distinct = new HashSet<>();
+        for (ID id : ids) {
+            if (this.slot(id) == SlotIndex.NONE) {
+                throw new RepositoryException("Entity with the specified id doesn't exist!");
+            }
+            if (!distinct.add(id)) {
+                throw new RepositoryException("The same id appears twice in the batch!");
+            }
+        }
+
+        List<E> removed = new ArrayList<>(ids.size());
+        for (ID id : ids) {
+            E e = this.remove(id);
+            this.unindex(e);
+            removed.add(e);
+        }
+        return removed;
     }
 }
@@ -0,0 +1,630 @@
+package repository;
+
+import codec.Codec;
+import codec.SerializableCodec;
+import entity.Entity;
+import exception.RepositoryException;
+
+import java.io.*;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Durable repository. The entities are kept in memory, and every change is appended to a log file before the
+ * operation returns. Concurrent writers share their fsync calls (group commit).
+ * When the log grows over a threshold, a snapshot of all the entities is written and a new, empty log is started.
+ * On opening, the repository loads the latest snapshot and replays the log written after it; a record which was
+ * only partially written, or whose checksum doesn't match, ends the log and is cut off.
+ * <p>
+ * Files in the directory: snapshot.dat (magic, generation, records) and log-generation.dat (records), where a
+ * record is its payload length, the CRC32 of the payload and the payload: the operation and the encoded object,
+ * or for a batch, the operation, the number of objects and the encoded objects.
+ * Objects are encoded with the codecs given to the repository, or with Java serialization by default; the binary
+ * {@link codec.UserCodec} and {@link codec.FriendshipCodec} are the recommended choice for users and friendships,
+ * with records smaller and faster to write than those of {@link SerializableCodec}.
+ */
+public class LogRepository<ID, E extends Entity<ID>> implements AbstractRepository<ID, E>, AutoCloseable {
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 64L << 20;
+
+    private static final int SNAPSHOT_MAGIC = 0x534E4150;
+    private static final int RECORD_HEADER = 8;
+    private static final int INITIAL_RECORD_SIZE = 256;
+    private static final byte SAVE = 1;
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+    private static final byte SAVE_ALL = 4;
+    private static final byte DELETE_ALL = 5;
+    private static final int STREAM_PAGE_SIZE = 1024;
+
+    private final Path directory;
+    private final InMemoryRepository<ID, E> entities;
+    private final Codec<ID> idCodec;
+    private final Codec<E> entityCodec;
+    private final long compactionThreshold;
+    private final Object syncLock = new Object();
+
+    // guarded by this; the log is swapped while holding both this and syncLock
+    private volatile FileChannel log;
+    // guarded by this; the length of the log, so that appends don't ask the file system for it
+    private long logSize;
+    private long generation;
+    private volatile long written;
+    // guarded by syncLock
+    private long synced;
+
+    /**
+     * Opens the repository stored in a directory, creating it if needed, with Java serialization for its records.
+     *
+     * @param directory Directory of the repository.
+     * @throws RepositoryException If the repository couldn't be read.
+     */
+    public LogRepository(Path directory) throws RepositoryException {
+        this(directory, new InMemoryRepository<ID, E>(), new SerializableCodec<>(), new SerializableCodec<>(),
+                DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Opens the repository stored in a directory, creating it if needed, with Java serialization for its records.
+     *
+     * @param directory           Directory of the repository.
+     * @param naturalKey          Function that extracts the natural key of an entity (see {@link NaturalKeys}).
+     * @param compactionThreshold Size in bytes of the log after which a snapshot is taken.
+     * @throws RepositoryException If the repository couldn't be read.
+     */
+    public LogRepository(Path directory, Function<? super E, ?> naturalKey, long compactionThreshold) throws RepositoryException {
+        this(directory, new InMemoryRepository<ID, E>(naturalKey), new SerializableCodec<>(), new SerializableCodec<>(),
+                compactionThreshold);
+    }
+
+    /**
+     * Opens the repository stored in a directory, creating it if needed, with binary codecs for its records.
+     *
+     * @param directory           Directory of the repository.
+     * @param naturalKey          Function that extracts the natural key of an entity (see {@link NaturalKeys}).
+     * @param idCodec             Codec of the IDs, used by the records of deletes.
+     * @param entityCodec         Codec of the entities.
+     * @param compactionThreshold Size in bytes of the log after which a snapshot is taken.
+     * @throws RepositoryException If the repository couldn't be read.
+     */
+    public LogRepository(Path directory, Function<? super E, ?> naturalKey, Codec<ID> idCodec, Codec<E> entityCodec,
+                         long compactionThreshold) throws RepositoryException {
+        this(directory, new InMemoryRepository<ID, E>(naturalKey), idCodec, entityCodec, compactionThreshold);
+    }
+
+    private LogRepository(Path directory, InMemoryRepository<ID, E> entities, Codec<ID> idCodec, Codec<E> entityCodec,
+                          long compactionThreshold) {
+        if (directory == null || idCodec == null || entityCodec == null) {
+            throw new IllegalArgumentException("Directory and codecs cannot be null!");
+        }
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException("Compaction threshold must be positive!");
+        }
+        this.directory = directory;
+        this.entities = entities;
+        this.idCodec = idCodec;
+        this.entityCodec = entityCodec;
+        this.compactionThreshold = compactionThreshold;
+        try {
+            this.recover();
+        } catch (IOException iOE) {
+            throw new RepositoryException("Couldn't open the repository.", iOE);
+        }
+    }
+
+    private Path snapshotFile() {
+        return this.directory.resolve("snapshot.dat");
+    }
+
+    private Path logFile(long generation) {
+        return this.directory.resolve("log-" + generation + ".dat");
+    }
+
+    /**
+     * Loads the latest snapshot, replays its log and cuts off a torn tail.
+     */
+    private void recover() throws IOException {
+        Files.createDirectories(this.directory);
+
+        this.generation = 0;
+        Path snapshot = this.snapshotFile();
+        if (Files.exists(snapshot)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+            if (buffer.remaining() < 12 || buffer.getInt() != SNAPSHOT_MAGIC) {
+                throw new RepositoryException("Snapshot is corrupt!");
+            }
+            this.generation = buffer.getLong();
+            if (this.replay(buffer) != buffer.limit()) {
+                throw new RepositoryException("Snapshot is corrupt!");
+            }
+        }
+
+        Path logPath = this.logFile(this.generation);
+        this.log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(logPath));
+        int valid = this.replay(buffer);
+        if (valid < buffer.limit()) {
+            this.log.truncate(valid);
+            this.log.force(true);
+        }
+        this.log.position(valid);
+        this.logSize = valid;
+
+        // logs of other generations are left over from an interrupted snapshot
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(this.directory, "log-*.dat")) {
+            for (Path path : logs) {
+                if (!path.getFileName().equals(logPath.getFileName())) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the valid records of a buffer to the entities.
+     *
+     * @param buffer Records, from the current position.
+     * @return Position after the last valid record.
+     */
+    private int replay(ByteBuffer buffer) {
+        int valid = buffer.position();
+        while (buffer.remaining() >= RECORD_HEADER) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                break;
+            }
+            ByteBuffer payload = buffer.slice(buffer.position(), length);
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            this.apply(payload);
+            buffer.position(buffer.position() + length);
+            valid = buffer.position();
+        }
+        return valid;
+    }
+
+    /**
+     * Applies the operation of a record to the entities.
+     *
+     * @param payload Payload of the record: the type of the operation and the encoded entity or ID.
+     */
+    private void apply(ByteBuffer payload) {
+        try {
+            byte operation = payload.get();
+            switch (operation) {
+                case SAVE -> this.entities.save(this.entityCodec.decode(payload));
+                case UPDATE -> this.entities.update(this.entityCodec.decode(payload));
+                case DELETE -> this.entities.delete(this.idCodec.decode(payload));
+                case SAVE_ALL -> this.entities.saveAll(this.decodeAll(this.entityCodec, payload));
+                case DELETE_ALL -> this.entities.deleteAll(this.decodeAll(this.idCodec, payload));
+                default -> throw new RepositoryException("Unknown record type!");
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new RepositoryException("Couldn't read a record.", e);
+        }
+    }
+
+    private <T> List<T> decodeAll(Codec<T> codec, ByteBuffer payload) {
+        int count = payload.getInt();
+        if (count < 0) {
+            throw new RepositoryException("Couldn't read a record.");
+        }
+        List<T> values = new ArrayList<>(Math.min(count, payload.remaining()));
+        for (int i = 0; i < count; i++) {
+            values.add(codec.decode(payload));
+        }
+        return values;
+    }
+
+    /**
+     * Encodes a record: the length of its payload, the CRC32 of its payload, and the payload, which is the type of
+     * the operation followed by the encoded entity or ID.
+     *
+     * @param operation Type of the operation.
+     * @param codec     Codec of the value.
+     * @param value     Entity, or ID for a delete.
+     * @return The record, ready to be written.
+     */
+    private <T> ByteBuffer record(byte operation, Codec<T> codec, T value) {
+        ByteBuffer record = ByteBuffer.allocate(INITIAL_RECORD_SIZE);
+        record.position(RECORD_HEADER);
+        record.put(operation);
+        record = encode(record, codec, value);
+        return seal(record);
+    }
+
+    /**
+     * Encodes the record of a batch: the type of the operation, the number of values and the encoded values.
+     *
+     * @param operation Type of the operation.
+     * @param codec     Codec of the values.
+     * @param values    Entities, or IDs for a delete.
+     * @return The record, ready to be written.
+     */
+    private <T> ByteBuffer record(byte operation, Codec<T> codec, Collection<? extends T> values) {
+        ByteBuffer record = ByteBuffer.allocate(INITIAL_RECORD_SIZE);
+        record.position(RECORD_HEADER);
+        record.put(operation).putInt(values.size());
+        for (T value : values) {
+            record = encode(record, codec, value);
+        }
+        return seal(record);
+    }
+
+    /**
+     * Encodes a value at the position of a record, growing the record if the value doesn't fit. The value is
+     * measured only when it doesn't fit, so a codec which measures by encoding does it once per record at most.
+     *
+     * @return The record, or a larger copy of it, positioned after the value.
+     */
+    private static <T> ByteBuffer encode(ByteBuffer record, Codec<T> codec, T value) {
+        int start = record.position();
+        try {
+            codec.encode(value, record);
+            return record;
+        } catch (BufferOverflowException bOE) {
+            long needed = (long) start + codec.encodedSize(value);
+            if (needed > Integer.MAX_VALUE - RECORD_HEADER) {
+                throw new RepositoryException("Batch is too large!");
+            }
+            int capacity = (int) Math.max(needed, Math.min(2L * record.capacity(), Integer.MAX_VALUE - RECORD_HEADER));
+            ByteBuffer larger = ByteBuffer.allocate(capacity);
+            larger.put(record.array(), 0, start);
+            codec.encode(value, larger);
+            return larger;
+        }
+    }
+
+    /**
+     * Back-patches the length and the CRC32 of the payload into the header of a record, and flips it for writing.
+     */
+    private static ByteBuffer seal(ByteBuffer record) {
+        int length = record.position() - RECORD_HEADER;
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER, length);
+        record.putInt(0, length).putInt(4, (int) crc.getValue()).flip();
+        return record;
+    }
+
+    /**
+     * Appends a record to the log; the caller holds the lock of the repository.
+     *
+     * @param record Record to be appended.
+     * @param undo   Reverts the in memory operation if the record couldn't be written.
+     * @return Sequence number of the record.
+     */
+    private long append(ByteBuffer record, Runnable undo) {
+        long position = this.logSize;
+        try {
+            while (record.hasRemaining()) {
+                this.log.write(record);
+            }
+        } catch (IOException iOE) {
+            undo.run();
+            try {
+                this.log.truncate(position);
+            } catch (IOException ignored) {
+                // the torn record is cut off when the repository is opened again
+            }
+            throw new RepositoryException("Couldn't write to the log.", iOE);
+        }
+        this.logSize = position + record.limit();
+        this.written++;
+
+        try {
+            if (this.logSize > this.compactionThreshold) {
+                this.snapshot();
+            }
+        } catch (RepositoryException ignored) {
+            // the record is in the log, so the operation succeeded; compaction is retried on the next append
+        }
+        return this.written;
+    }
+
+    /**
+     * Waits until a record is on disk. The first writer to get here forces every record written so far,
+     * so the writers waiting behind it usually return without an fsync of their own.
+     *
+     * @param sequence Sequence number of the record.
+     */
+    private void commit(long sequence) {
+        synchronized (this.syncLock) {
+            if (this.synced >= sequence) {
+                return;
+            }
+            long target = this.written;
+            try {
+                this.log.force(false);
+            } catch (IOException iOE) {
+                throw new RepositoryException("Couldn't sync the log.", iOE);
+            }
+            this.synced = target;
+        }
+    }
+
+    /**
+     * Writes a snapshot of all the entities and starts a new, empty log.
+     *
+     * @throws RepositoryException If the snapshot couldn't be written; the repository stays usable.
+     */
+    public synchronized void snapshot() throws RepositoryException {
+        synchronized (this.syncLock) {
+            long next = this.generation + 1;
+            Path temporary = this.directory.resolve("snapshot.tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+                    ByteBuffer header = ByteBuffer.allocate(12).putInt(SNAPSHOT_MAGIC).putLong(next);
+                    out.write(header.array());
+                    for (E e : this.entities.getAll()) {
+                        ByteBuffer record = this.record(SAVE, this.entityCodec, e);
+                        out.write(record.array(), 0, record.limit());
+                    }
+                    out.flush();
+                    channel.force(true);
+                }
+
+                FileChannel nextLog = FileChannel.open(this.logFile(next), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                try {
+                    Files.move(temporary, this.snapshotFile(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    // the rename and the new log must be on disk before the old log is deleted
+                    this.syncDirectory();
+                } catch (IOException iOE) {
+                    nextLog.close();
+                    throw iOE;
+                }
+
+                FileChannel previousLog = this.log;
+                this.log = nextLog;
+                this.logSize = 0;
+                previousLog.close();
+                Files.deleteIfExists(this.logFile(this.generation));
+                this.syncDirectory();
+                this.generation = next;
+                // everything written so far is in the snapshot
+                this.synced = this.written;
+            } catch (IOException iOE) {
+                throw new RepositoryException("Couldn't write the snapshot.", iOE);
+            }
+        }
+    }
+
+    /**
+     * Forces the entries of the directory, such as a rename, to the disk. Directories can't be opened on every
+     * platform (Windows); there the rename is left to the file system.
+     */
+    private void syncDirectory() throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(this.directory, StandardOpenOption.READ);
+        } catch (IOException iOE) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Closes the log. The repository can't be used afterwards.
+     */
+    @Override
+    public synchronized void close() throws RepositoryException {
+        try {
+            this.log.close();
+        } catch (IOException iOE) {
+            throw new RepositoryException("Couldn't close the log.", iOE);
+        }
+    }
+
+    /**
+     * Checks if the repository is empty.
+     *
+     * @return true if the repository is empty, false otherwise.
+     */
+    @Override
+    public synchronized boolean isEmpty() {
+        return this.entities.isEmpty();
+    }
+
+    /**
+     * Size of the repository.
+     *
+     * @return Number of entities E stored in the repository.
+     */
+    @Override
+    public synchronized int size() {
+        return this.entities.size();
+    }
+
+    /**
+     * All the contents of the repository.
+     *
+     * @return A copy of all the values stored in the repository.
+     */
+    @Override
+    public synchronized Iterable<E> getAll() {
+        List<E> all = new ArrayList<>(this.entities.size());
+        this.entities.getAll().forEach(all::add);
+        return all;
+    }
+
+    /**
+     * Lists the entities one page at a time.
+     *
+     * @param token Token of the page, from the previous page, or null for the first page.
+     * @param size  Maximum number of entities of the page.
+     * @return The page of entities.
+     * @throws IllegalArgumentException If the token is malformed, or the size isn't positive.
+     */
+    @Override
+    public synchronized Page<E> getPage(String token, int size) throws IllegalArgumentException {
+        return this.entities.getPage(token, size);
+    }
+
+    /**
+     * @return Lazy stream of all the entities, read a page at a time under the lock of the repository.
+     */
+    @Override
+    public Stream<E> stream() {
+        return Page.stream(token -> this.getPage(token, STREAM_PAGE_SIZE));
+    }
+
+    /**
+     * Searches for one entity in the repository.
+     *
+     * @param id ID of the Entity to search
+     * @return Entity with its ID equal to id
+     * @throws RepositoryException      If the entity with the specified ID doesn't exist
+     * @throws IllegalArgumentException If the id is null
+     */
+    @Override
+    public synchronized E getOne(ID id) throws RepositoryException, IllegalArgumentException {
+        return this.entities.getOne(id);
+    }
+
+    /**
+     * Adds an entity to the repository. Returns once the entity is on disk.
+     *
+     * @param e Entity that should be added
+     * @throws RepositoryException      If the entity that should be added already exists, or couldn't be written.
+     * @throws IllegalArgumentException If the entity is null.
+     */
+    @Override
+    public void save(E e) throws RepositoryException, IllegalArgumentException {
+        if (e == null) {
+            throw new IllegalArgumentException("Entity cannot be null!");
+        }
+        ByteBuffer record = this.record(SAVE, this.entityCodec, e);
+        long sequence;
+        synchronized (this) {
+            this.entities.save(e);
+            sequence = this.append(record, () -> this.entities.delete(e.getId()));
+        }
+        this.commit(sequence);
+    }
+
+    /**
+     * Removes an entity from the repository. Returns once the removal is on disk.
+     *
+     * @param id ID of the entity to remove.
+     * @return Removed entity.
+     * @throws RepositoryException      If the entity with the specified ID doesn't exist, or couldn't be written.
+     * @throws IllegalArgumentException If the id is null.
+     */
+    @Override
+    public E delete(ID id) throws RepositoryException, IllegalArgumentException {
+        if (id == null) {
+            throw new IllegalArgumentException("Id cannot be null!");
+        }
+        ByteBuffer record = this.record(DELETE, this.idCodec, id);
+        E removed;
+        long sequence;
+        synchronized (this) {
+            removed = this.entities.delete(id);
+            sequence = this.append(record, () -> this.entities.save(removed));
+        }
+        this.commit(sequence);
+        return removed;
+    }
+
+    /**
+     * Updates and entity. Returns once the update is on disk.
+     *
+     * @param e New entity.
+     * @return The entity before update.
+     * @throws RepositoryException      If the entity with the specified ID doesn't exist, or couldn't be written.
+     * @throws IllegalArgumentException If the e is null.
+     */
+    @Override
+    public E update(E e) throws RepositoryException, IllegalArgumentException {
+        if (e == null) {
+            throw new IllegalArgumentException("Id cannot be null!");
+        }
+        ByteBuffer record = this.record(UPDATE, this.entityCodec, e);
+        E old;
+        long sequence;
+        synchronized (this) {
+            old = this.entities.update(e);
+            sequence = this.append(record, () -> this.entities.update(old));
+        }
+        this.commit(sequence);
+        return old;
+    }
+
+    /**
+     * Searches for several entities.
+     *
+     * @param ids IDs of the entities to search.
+     * @return Entities with the IDs, in the order of the IDs.
+     * @throws RepositoryException      If an entity with one of the IDs doesn't exist.
+     * @throws IllegalArgumentException If the collection or one of its IDs is null.
+     */
+    @Override
+    public synchronized List<E> getMany(Collection<? extends ID> ids) throws RepositoryException, IllegalArgumentException {
+        return this.entities.getMany(ids);
+    }
+
+    /**
+     * Adds several entities; either all of them are added, or none. The batch is written as a single record, and
+     * the method returns once it is on disk.
+     *
+     * @param entities Entities that should be added.
+     * @throws RepositoryException      If an entity already exists, the batch contains the same entity twice, or the
+     *                                  batch couldn't be written.
+     * @throws IllegalArgumentException If the collection or one of its entities is null.
+     */
+    @Override
+    public void saveAll(Collection<? extends E> entities) throws RepositoryException, IllegalArgumentException {
+        AbstractRepository.requireElements(entities, "Entities");
+        List<E> batch = List.copyOf(entities);
+        ByteBuffer record = this.record(SAVE_ALL, this.entityCodec, batch);
+        List<ID> ids = batch.stream().map(E::getId).toList();
+        long sequence;
+        synchronized (this) {
+            this.entities.saveAll(batch);
+            sequence = this.append(record, () -> this.entities.deleteAll(ids));
+        }
+        this.commit(sequence);
+    }
+
+    /**
+     * Removes several entities; either all of them are removed, or none. The batch is written as a single record,
+     * and the method returns once it is on disk.
+     *
+     * @param ids IDs of the entities to remove.
+     * @return Removed entities, in the order of the IDs.
+     * @throws RepositoryException      If an entity with one of the IDs doesn't exist, an ID appears twice, or the
+     *                                  batch couldn't be written.
+     * @throws IllegalArgumentException If the collection or one of its IDs is null.
+     */
+    @Override
+    public List<E> deleteAll(Collection<? extends ID> ids) throws RepositoryException, IllegalArgumentException {
+        AbstractRepository.requireElements(ids, "Ids");
+        List<ID> batch = List.copyOf(ids);
+        ByteBuffer record = this.record(DELETE_ALL, this.idCodec, batch);
+        List<E> removed;
+        long sequence;
+        synchronized (this) {
+            removed = this.entities.deleteAll(batch);
+            sequence = this.append(record, () -> this.entities.saveAll(removed));
+        }
+        this.commit(sequence);
+        return removed;
+    }
+}
@@ -0,0 +1,646 @@
+package repository;
+
+import entity.User;
+import exception.RepositoryException;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * User repository stored outside the Java heap, in a memory-mapped file.
+ * The file is an open-addressing hash table of fixed-size slots keyed by the user ID, with linear probing, so
+ * opening it only maps the file, and getOne reads the user straight from the mapping.
+ * <p>
+ * Each slot holds a state (empty, live or deleted), the two longs of the ID, and the first name, last name and
+ * email as a length and UTF-8 bytes of at most {@link #MAX_NAME_BYTES}, {@link #MAX_NAME_BYTES} and
+ * {@link #MAX_EMAIL_BYTES} bytes.
+ * A single mapping is limited to 2 GB, so the slots are mapped in pieces of {@link #DEFAULT_MAPPING_SLOTS} slots
+ * (1 GB); the table can grow to 2^29 slots, with room for about 400 million users at the load factor kept.
+ * Unlike InMemoryRepository, only IDs are checked for duplicates; changes reach the disk when the operating system
+ * writes the mapped pages back, or on {@link #flush()}. The repository isn't thread-safe.
+ */
+public class MappedUserRepository implements AbstractRepository<UUID, User>, AutoCloseable {
+    public static final int MAX_NAME_BYTES = 62;
+    public static final int MAX_EMAIL_BYTES = 102;
+    /**
+     * Number of slots mapped together, unless the table is smaller.
+     */
+    public static final int DEFAULT_MAPPING_SLOTS = 1 << 22;
+
+    private static final int MAGIC = 0x55534552;
+    private static final int HEADER_SIZE = 64;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int SIZE_OFFSET = 8;
+    private static final int TOMBSTONES_OFFSET = 12;
+
+    private static final int SLOT_SIZE = 256;
+    private static final int STATE_OFFSET = 0;
+    private static final int MOST_OFFSET = 8;
+    private static final int LEAST_OFFSET = 16;
+    private static final int FIRST_NAME_OFFSET = 24;
+    private static final int LAST_NAME_OFFSET = 88;
+    private static final int EMAIL_OFFSET = 152;
+
+    private static final byte EMPTY = 0;
+    private static final byte LIVE = 1;
+    private static final byte DELETED = 2;
+    private static final short NULL_LENGTH = -1;
+
+    private static final int MIN_CAPACITY = 16;
+    /**
+     * Largest number of slots; doubling it still fits in an int, so growing past it fails cleanly.
+     */
+    private static final int MAX_CAPACITY = 1 << 29;
+
+    private final Path file;
+    private final int mappingSlots;
+    private FileChannel channel;
+    private Table table;
+    private int capacity;
+    private int size;
+    private int tombstones;
+
+    /**
+     * Opens the repository stored in a file, creating it if needed.
+     *
+     * @param file File of the repository.
+     * @throws RepositoryException If the file couldn't be opened or isn't a user repository.
+     */
+    public MappedUserRepository(Path file) throws RepositoryException {
+        this(file, DEFAULT_MAPPING_SLOTS);
+    }
+
+    /**
+     * Opens the repository stored in a file, creating it if needed, mapping a given number of slots at a time.
+     * The number doesn't change the file, so a file can be opened with any number.
+     *
+     * @param file         File of the repository.
+     * @param mappingSlots Number of slots mapped together; a power of two of at most {@link #DEFAULT_MAPPING_SLOTS}.
+     * @throws RepositoryException      If the file couldn't be opened or isn't a user repository.
+     * @throws IllegalArgumentException If the file is null, or the number of slots is invalid.
+     */
+    public MappedUserRepository(Path file, int mappingSlots) throws RepositoryException, IllegalArgumentException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null!");
+        }
+        if (mappingSlots < 1 || mappingSlots > DEFAULT_MAPPING_SLOTS || Integer.bitCount(mappingSlots) != 1) {
+            throw new IllegalArgumentException("Mapping slots must be a power of two up to " + DEFAULT_MAPPING_SLOTS + "!");
+        }
+        this.file = file;
+        this.mappingSlots = mappingSlots;
+        try {
+            if (Files.exists(file) && Files.size(file) > 0) {
+                this.open();
+            } else {
+                this.create(file, MIN_CAPACITY);
+                this.open();
+            }
+        } catch (IOException iOE) {
+            throw new RepositoryException("Couldn't open the repository.", iOE);
+        }
+    }
+
+    /**
+     * The header and the slots of a table in a file, with the slots split into mappings of up to mappingSlots slots.
+     */
+    private static final class Table {
+        private final MappedByteBuffer header;
+        private final MappedByteBuffer[] mappings;
+        private final int shift;
+        private final int mask;
+
+        private Table(FileChannel channel, int capacity, int mappingSlots) throws IOException {
+            this.header = map(channel, 0, HEADER_SIZE);
+            int slots = Math.min(capacity, mappingSlots);
+            this.mappings = new MappedByteBuffer[capacity / slots];
+            for (int i = 0; i < this.mappings.length; i++) {
+                this.mappings[i] = map(channel, HEADER_SIZE + (long) i * slots * SLOT_SIZE, (long) slots * SLOT_SIZE);
+            }
+            this.shift = Integer.numberOfTrailingZeros(slots);
+            this.mask = slots - 1;
+        }
+
+        /**
+         * @return Mapping which holds the slot.
+         */
+        private MappedByteBuffer buffer(int slot) {
+            return this.mappings[slot >>> this.shift];
+        }
+
+        /**
+         * @return Offset of the slot in its mapping.
+         */
+        private int offset(int slot) {
+            return (slot & this.mask) * SLOT_SIZE;
+        }
+
+        private byte state(int slot) {
+            return this.buffer(slot).get(this.offset(slot) + STATE_OFFSET);
+        }
+
+        private void force() {
+            this.header.force();
+            for (MappedByteBuffer mapping : this.mappings) {
+                mapping.force();
+            }
+        }
+    }
+
+    /**
+     * Creates an empty table in a file.
+     */
+    private void create(Path path, int capacity) throws IOException {
+        try (FileChannel newChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Table newTable = new Table(newChannel, capacity, this.mappingSlots);
+            newTable.header.putInt(0, MAGIC);
+            newTable.header.putInt(CAPACITY_OFFSET, capacity);
+            newTable.force();
+        }
+    }
+
+    /**
+     * Maps a part of a file for reading and writing, growing the file if it is shorter.
+     *
+     * @throws RepositoryException If the part is too large to be mapped.
+     */
+    private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException, RepositoryException {
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        } catch (IllegalArgumentException iAE) {
+            throw new RepositoryException("Couldn't map the repository.", iAE);
+        }
+    }
+
+    /**
+     * Maps the file and reads its header.
+     */
+    private void open() throws IOException {
+        this.channel = FileChannel.open(this.file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long length = this.channel.size();
+            if (length < HEADER_SIZE) {
+                throw new RepositoryException("File isn't a user repository!");
+            }
+            MappedByteBuffer header = map(this.channel, 0, HEADER_SIZE);
+            int capacity = header.getInt(CAPACITY_OFFSET);
+            if (header.getInt(0) != MAGIC || Integer.bitCount(capacity) != 1 || capacity > MAX_CAPACITY
+                    || HEADER_SIZE + (long) capacity * SLOT_SIZE != length) {
+                throw new RepositoryException("File isn't a user repository!");
+            }
+            this.table = new Table(this.channel, capacity, this.mappingSlots);
+            this.capacity = capacity;
+            this.size = header.getInt(SIZE_OFFSET);
+            this.tombstones = header.getInt(TOMBSTONES_OFFSET);
+        } catch (IOException | RuntimeException exception) {
+            this.channel.close();
+            throw exception;
+        }
+    }
+
+    private void writeCounters() {
+        this.table.header.putInt(SIZE_OFFSET, this.size);
+        this.table.header.putInt(TOMBSTONES_OFFSET, this.tombstones);
+    }
+
+    private static int slotOf(UUID id, int capacity) {
+        long hash = id.getMostSignificantBits() ^ id.getLeastSignificantBits();
+        hash ^= hash >>> 32;
+        hash *= 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (capacity - 1);
+    }
+
+    /**
+     * @param id ID of a user.
+     * @return Slot of the live user with the ID, or -1 if there is none.
+     */
+    private int find(UUID id) {
+        long most = id.getMostSignificantBits();
+        long least = id.getLeastSignificantBits();
+        int slot = slotOf(id, this.capacity);
+        for (int probes = 0; probes < this.capacity; probes++) {
+            MappedByteBuffer mapping = this.table.buffer(slot);
+            int offset = this.table.offset(slot);
+            byte state = mapping.get(offset + STATE_OFFSET);
+            if (state == EMPTY) {
+                return -1;
+            }
+            if (state == LIVE && mapping.getLong(offset + MOST_OFFSET) == most
+                    && mapping.getLong(offset + LEAST_OFFSET) == least) {
+                return slot;
+            }
+            slot = (slot + 1) & (this.capacity - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * @throws RepositoryException If the stored length is invalid, so the slot is corrupted.
+     */
+    private static String readString(MappedByteBuffer mapping, int offset, int maxBytes) throws RepositoryException {
+        short length = mapping.getShort(offset);
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length < 0 || length > maxBytes) {
+            throw new RepositoryException("Corrupted slot: a field has length " + length + "!");
+        }
+        byte[] bytes = new byte[length];
+        mapping.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encode(String string, int maxBytes, String field) {
+        if (string == null) {
+            return null;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxBytes) {
+            throw new RepositoryException(field + " is longer than " + maxBytes + " bytes!");
+        }
+        return bytes;
+    }
+
+    private static void writeString(MappedByteBuffer mapping, int offset, byte[] bytes) {
+        if (bytes == null) {
+            mapping.putShort(offset, NULL_LENGTH);
+        } else {
+            mapping.putShort(offset, (short) bytes.length);
+            mapping.put(offset + 2, bytes);
+        }
+    }
+
+    private User readUser(int slot) {
+        MappedByteBuffer mapping = this.table.buffer(slot);
+        int offset = this.table.offset(slot);
+        return new User(new UUID(mapping.getLong(offset + MOST_OFFSET), mapping.getLong(offset + LEAST_OFFSET)),
+                readString(mapping, offset + FIRST_NAME_OFFSET, MAX_NAME_BYTES),
+                readString(mapping, offset + LAST_NAME_OFFSET, MAX_NAME_BYTES),
+                readString(mapping, offset + EMAIL_OFFSET, MAX_EMAIL_BYTES));
+    }
+
+    /**
+     * Writes the fields of a user into a slot. The state is written last, so a new slot never becomes live with
+     * partially written fields; an update rewrites the fields of a slot which is already live, so a crash during it
+     * can leave the slot with a mix of the old and the new fields.
+     */
+    private static void writeUser(MappedByteBuffer mapping, int offset, User user, byte[][] fields) {
+        mapping.putLong(offset + MOST_OFFSET, user.getId().getMostSignificantBits());
+        mapping.putLong(offset + LEAST_OFFSET, user.getId().getLeastSignificantBits());
+        writeString(mapping, offset + FIRST_NAME_OFFSET, fields[0]);
+        writeString(mapping, offset + LAST_NAME_OFFSET, fields[1]);
+        writeString(mapping, offset + EMAIL_OFFSET, fields[2]);
+        mapping.put(offset + STATE_OFFSET, LIVE);
+    }
+
+    private static byte[][] encodeFields(User user) {
+        return new byte[][]{
+                encode(user.getFirstName(), MAX_NAME_BYTES, "First name"),
+                encode(user.getLastName(), MAX_NAME_BYTES, "Last name"),
+                encode(user.getEmail(), MAX_EMAIL_BYTES, "Email")
+        };
+    }
+
+    /**
+     * Rebuilds the table with a new capacity, dropping the deleted slots.
+     */
+    private void resize(int newCapacity) throws IOException {
+        if (newCapacity > MAX_CAPACITY) {
+            throw new RepositoryException("Repository is full!");
+        }
+        Path temporary = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        try {
+            this.copy(temporary, newCapacity);
+        } catch (IOException | RuntimeException exception) {
+            Files.deleteIfExists(temporary);
+            throw exception;
+        }
+        this.channel.close();
+        Files.move(temporary, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        this.open();
+    }
+
+    /**
+     * Copies the live slots into a new table in a file.
+     */
+    private void copy(Path temporary, int newCapacity) throws IOException {
+        this.create(temporary, newCapacity);
+        try (FileChannel newChannel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Table newTable = new Table(newChannel, newCapacity, this.mappingSlots);
+            for (int slot = 0; slot < this.capacity; slot++) {
+                MappedByteBuffer mapping = this.table.buffer(slot);
+                int offset = this.table.offset(slot);
+                if (mapping.get(offset + STATE_OFFSET) == LIVE) {
+                    UUID id = new UUID(mapping.getLong(offset + MOST_OFFSET), mapping.getLong(offset + LEAST_OFFSET));
+                    int target = slotOf(id, newCapacity);
+                    while (newTable.state(target) != EMPTY) {
+                        target = (target + 1) & (newCapacity - 1);
+                    }
+                    // live slots are copied byte for byte
+                    newTable.buffer(target).put(newTable.offset(target), mapping, offset, SLOT_SIZE);
+                }
+            }
+            newTable.header.putInt(SIZE_OFFSET, this.size);
+            newTable.header.putInt(TOMBSTONES_OFFSET, 0);
+            newTable.force();
+        }
+    }
+
+    /**
+     * Writes the changes to the disk.
+     *
+     * @throws RepositoryException If the changes couldn't be written.
+     */
+    public void flush() throws RepositoryException {
+        this.table.force();
+    }
+
+    /**
+     * Writes the changes to the disk and closes the file. The repository can't be used afterwards.
+     */
+    @Override
+    public void close() throws RepositoryException {
+        try {
+            this.table.force();
+            this.channel.close();
+        } catch (IOException iOE) {
+            throw new RepositoryException("Couldn't close the repository.", iOE);
+        }
+    }
+
+    /**
+     * Checks if the repository is empty.
+     *
+     * @return true if the repository is empty, false otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Size of the repository.
+     *
+     * @return Number of entities E stored in the repository.
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * All the contents of the repository.
+     *
+     * @return All the values stored in the repository, read from the file while iterating.
+     */
+    @Override
+    public Iterable<User> getAll() {
+        return () -> new Iterator<>() {
+            private int slot = this.advance(0);
+
+            private int advance(int from) {
+                int current = from;
+                while (current < capacity && table.state(current) != LIVE) {
+                    current++;
+                }
+                return current;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return this.slot < capacity;
+            }
+
+            @Override
+            public User next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                User user = readUser(this.slot);
+                this.slot = this.advance(this.slot + 1);
+                return user;
+            }
+        };
+    }
+
+    /**
+     * Lists the users one page at a time, starting at the slot of the token. Growing the table moves the users
+     * to other slots, so a page read after it may repeat or skip users.
+     *
+     * @param token Token of the page, from the previous page, or null for the first page.
+     * @param size  Maximum number of users of the page.
+     * @return The page of users.
+     * @throws IllegalArgumentException If the token is malformed, or the size isn't positive.
+     */
+    @Override
+    public Page<User> getPage(String token, int size) throws IllegalArgumentException {
+        Page.checkSize(size);
+        int slot = (int) Math.min(Page.position(token), this.capacity);
+        List<User> items = new ArrayList<>(Math.min(size, this.size));
+        for (; slot < this.capacity && items.size() < size; slot++) {
+            if (this.table.state(slot) == LIVE) {
+                items.add(this.readUser(slot));
+            }
+        }
+        while (slot < this.capacity && this.table.state(slot) != LIVE) {
+            slot++;
+        }
+        return new Page<>(items, slot < this.capacity ? Page.token(slot) : null);
+    }
+
+    /**
+     * Searches for one entity in the repository.
+     *
+     * @param id ID of the Entity to search
+     * @return Entity with its ID equal to id
+     * @throws RepositoryException      If the entity with the specified ID doesn't exist
+     * @throws IllegalArgumentException If the id is null
+     */
+    @Override
+    public User getOne(UUID id) throws RepositoryException, IllegalArgumentException {
+        if (id == null) {
+            throw new IllegalArgumentException("The id cannot be null!");
+        }
+        int slot = this.find(id);
+        if (slot < 0) {
+            throw new RepositoryException("Entity with the specified id doesn't exist!");
+        }
+        return this.readUser(slot);
+    }
+
+    /**
+     * Adds an entity to the repository.
+     *
+     * @param user Entity that should be added
+     * @throws RepositoryException      If an entity with the same ID is already stored, or a field is too long.
+     * @throws IllegalArgumentException If the entity is null.
+     */
+    @Override
+    public void save(User user) throws RepositoryException, IllegalArgumentException {
+        if (user == null) {
+            throw new IllegalArgumentException("Entity cannot be null!");
+        }
+        if (this.find(user.getId()) >= 0) {
+            throw new RepositoryException("An entity with the same id is already stored!");
+        }
+        byte[][] fields = encodeFields(user);
+        this.reserve(1);
+        this.insert(user, fields);
+        this.writeCounters();
+    }
+
+    /**
+     * Makes room for new users, growing the table or dropping its deleted slots if needed.
+     *
+     * @param count Number of users that will be added.
+     */
+    private void reserve(int count) throws RepositoryException {
+        // keep at least a quarter of the slots empty, so that probes stay short and always end
+        if ((this.size + this.tombstones + (long) count) * 4 <= this.capacity * 3L) {
+            return;
+        }
+        long needed = this.size + (long) count;
+        int newCapacity = this.capacity;
+        while (needed * 2 > newCapacity && newCapacity <= MAX_CAPACITY) {
+            newCapacity *= 2;
+        }
+        try {
+            this.resize(newCapacity);
+        } catch (IOException iOE) {
+            throw new RepositoryException("Couldn't grow the repository.", iOE);
+        }
+    }
+
+    /**
+     * Writes a user which isn't stored yet into a free slot; the counters are written by the caller.
+     */
+    private void insert(User user, byte[][] fields) {
+        int slot = slotOf(user.getId(), this.capacity);
+        while (this.table.state(slot) == LIVE) {
+            slot = (slot + 1) & (this.capacity - 1);
+        }
+        if (this.table.state(slot) == DELETED) {
+            this.tombstones--;
+        }
+        writeUser(this.table.buffer(slot), this.table.offset(slot), user, fields);
+        this.size++;
+    }
+
+    /**
+     * Adds several users; either all of them are added, or none. The table grows at most once for the batch.
+     *
+     * @param users Users that should be added.
+     * @throws RepositoryException      If a user already exists, the batch contains the same ID twice, or a field is
+     *                                  too long.
+     * @throws IllegalArgumentException If the collection or one of its users is null.
+     */
+    @Override
+    public void saveAll(Collection<? extends User> users) throws RepositoryException, IllegalArgumentException {
+        AbstractRepository.requireElements(users, "Entities");
+        Set<UUID> ids = new HashSet<>();
+        List<byte[][]> fields = new ArrayList<>(users.size());
+        for (User user : users) {
+            if (!ids.add(user.getId()) || this.find(user.getId()) >= 0) {
+                throw new RepositoryException("An entity with the same id is already stored!");
+            }
+            fields.add(encodeFields(user));
+        }
+
+        this.reserve(users.size());
+        int i = 0;
+        for (User user : users) {
+            this.insert(user, fields.get(i++));
+        }
+        this.writeCounters();
+    }
+
+    /**
+     * Removes several users; either all of them are removed, or none.
+     *
+     * @param ids IDs of the users to remove.
+     * @return Removed users, in the order of the IDs.
+     * @throws RepositoryException      If a user with one of the IDs doesn't exist, or an ID appears twice.
+     * @throws IllegalArgumentException If the collection or one of its IDs is null.
+     */
+    @Override
+    public List<User> deleteAll(Collection<? extends UUID> ids) throws RepositoryException, IllegalArgumentException {
+        AbstractRepository.requireElements(ids, "Ids");
+        Set<UUID> distinct = new HashSet<>();
+        int[] found = new int[ids.size()];
+        int i = 0;
+        for (UUID id : ids) {
+            if (!distinct.add(id)) {
+                throw new RepositoryException("The same id appears twice in the batch!");
+            }
+            found[i] = this.find(id);
+            if (found[i++] < 0) {
+                throw new RepositoryException("Entity with the specified id doesn't exist!");
+            }
+        }
+
+        List<User> removed = new ArrayList<>(found.length);
+        for (int slot : found) {
+            removed.add(this.readUser(slot));
+            this.table.buffer(slot).put(this.table.offset(slot) + STATE_OFFSET, DELETED);
+        }
+        this.size -= found.length;
+        this.tombstones += found.length;
+        this.writeCounters();
+        return removed;
+    }
+
+    /**
+     * Removes an entity from the repository
+     *
+     * @param id ID of the entity to remove.
+     * @return Removed entity.
+     * @throws RepositoryException      If the entity with the specified ID doesn't exist.
+     * @throws IllegalArgumentException If the id is null.
+     */
+    @Override
+    public User delete(UUID id) throws RepositoryException, IllegalArgumentException {
+        if (id == null) {
+            throw new IllegalArgumentException("Id cannot be null!");
+        }
+        int slot = this.find(id);
+        if (slot < 0) {
+            throw new RepositoryException("Entity with the specified id doesn't exist!");
+        }
+        User removed = this.readUser(slot);
+        this.table.buffer(slot).put(this.table.offset(slot) + STATE_OFFSET, DELETED);
+        this.size--;
+        this.tombstones++;
+        this.writeCounters();
+        return removed;
+    }
+
+    /**
+     * Updates and entity.
+     *
+     * @param user New entity.
+     * @return The entity before update.
+     * @throws RepositoryException      If the entity with the specified ID doesn't exist, or a field is too long.
+     * @throws IllegalArgumentException If the e is null.
+     */
+    @Override
+    public User update(User user) throws RepositoryException, IllegalArgumentException {
+        if (user == null) {
+            throw new IllegalArgumentException("Id cannot be null!");
+        }
+        int slot = this.find(user.getId());
+        if (slot < 0) {
+            throw new RepositoryException("Entity with the specified id doesn't exist!");
+        }
+        byte[][] fields = encodeFields(user);
+        User old = this.readUser(slot);
+        writeUser(this.table.buffer(slot), this.table.offset(slot), user, fields);
+        return old;
+    }
+}
@@ -0,0 +1,35 @@
+package repository;
+
+import entity.Friendship;
+import entity.FriendshipKey;
+import entity.User;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Natural keys of the entities, used by the repositories to detect duplicates with a single hash lookup.
+ * Each key is equal for two entities exactly when the entities are equal.
+ */
+public final class NaturalKeys {
+    private NaturalKeys() {
+    }
+
+    /**
+     * Two users are the same if they have the same first name, last name and email.
+     *
+     * @return Natural key of a user.
+     */
+    public static Function<User, Object> user() {
+        return user -> Arrays.asList(user.getFirstName(), user.getLastName(), user.getEmail());
+    }
+
+    /**
+     * Two friendships are the same if they are between the same pair of users.
+     *
+     * @return Natural key of a friendship.
+     */
+    public static Function<Friendship, FriendshipKey> friendship() {
+        return Friendship::getId;
+    }
+}
@@ -0,0 +1,97 @@
+package repository;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A page of entities, with the token from which the next page is read.
+ * Tokens are opaque to the callers; they hold the position at which the next page starts. Pages are weakly
+ * consistent: entities added or removed between two pages may or may not be listed.
+ *
+ * @param <T> Type of the entities.
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final String nextToken;
+
+    public Page(List<T> items, String nextToken) {
+        this.items = items;
+        this.nextToken = nextToken;
+    }
+
+    /**
+     * @return Entities of the page.
+     */
+    public List<T> getItems() {
+        return this.items;
+    }
+
+    /**
+     * @return Token of the next page, or null if this is the last page.
+     */
+    public String getNextToken() {
+        return this.nextToken;
+    }
+
+    /**
+     * @return true if there is a next page.
+     */
+    public boolean hasNext() {
+        return this.nextToken != null;
+    }
+
+    /**
+     * Lazily reads all the pages, one at a time.
+     *
+     * @param fetch Reads the page that starts at a token; the first page is read with a null token.
+     * @return Stream of the entities of all the pages.
+     */
+    public static <T> Stream<T> stream(Function<String, Page<T>> fetch) {
+        return Stream.of((String) null)
+                .flatMap(first -> Stream.iterate(fetch.apply(first), Objects::nonNull,
+                        page -> page.hasNext() ? fetch.apply(page.getNextToken()) : null))
+                .flatMap(page -> page.getItems().stream());
+    }
+
+    /**
+     * @param position Position at which a page starts.
+     * @return Token for the position.
+     */
+    static String token(long position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(ByteBuffer.allocate(8).putLong(position).array());
+    }
+
+    /**
+     * @param token Token of a page, or null for the first page.
+     * @return Position at which the page starts.
+     * @throws IllegalArgumentException If the token is malformed.
+     */
+    static long position(String token) throws IllegalArgumentException {
+        if (token == null) {
+            return 0;
+        }
+        byte[] bytes = Base64.getUrlDecoder().decode(token);
+        if (bytes.length != 8) {
+            throw new IllegalArgumentException("Invalid page token!");
+        }
+        long position = ByteBuffer.wrap(bytes).getLong();
+        if (position < 0) {
+            throw new IllegalArgumentException("Invalid page token!");
+        }
+        return position;
+    }
+
+    /**
+     * @param size Requested size of a page.
+     * @throws IllegalArgumentException If the size isn't positive.
+     */
+    static void checkSize(int size) throws IllegalArgumentException {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be positive!");
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package repository;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index from the ID of an entity to the slot in which a repository keeps it.
+ *
+ * @param <ID> Type of the IDs.
+ */
+public interface SlotIndex<ID> {
+    int NONE = -1;
+
+    /**
+     * @return Slot of the ID, or NONE.
+     */
+    int get(Object id);
+
+    /**
+     * @return Previous slot of the ID, or NONE.
+     */
+    int put(ID id, int slot);
+
+    /**
+     * @return Removed slot of the ID, or NONE.
+     */
+    int remove(Object id);
+
+    int size();
+
+    /**
+     * Index for IDs of any type, backed by a HashMap.
+     */
+    class Hashed<ID> implements SlotIndex<ID> {
+        private final Map<ID, Integer> slots = new HashMap<>();
+
+        @Override
+        public int get(Object id) {
+            Integer slot = this.slots.get(id);
+            return slot == null ? NONE : slot;
+        }
+
+        @Override
+        public int put(ID id, int slot) {
+            Integer previous = this.slots.put(id, slot);
+            return previous == null ? NONE : previous;
+        }
+
+        @Override
+        public int remove(Object id) {
+            Integer previous = this.slots.remove(id);
+            return previous == null ? NONE : previous;
+        }
+
+        @Override
+        public int size() {
+            return this.slots.size();
+        }
+    }
+}
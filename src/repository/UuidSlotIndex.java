@@ -0,0 +1,144 @@
+package repository;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Index from UUIDs to slots, as an open-addressing hash table with linear probing.
+ * The two longs of every UUID are stored inline in parallel arrays, so an entry costs 20 bytes in the arrays instead
+ * of a HashMap node, a UUID and a boxed Integer. Removed entries leave tombstones, which are dropped when the table
+ * is rebuilt; the table is rebuilt at the same capacity when tombstones, rather than entries, fill it.
+ */
+public class UuidSlotIndex implements SlotIndex<UUID> {
+    private static final int EMPTY = -1;
+    private static final int TOMBSTONE = -2;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] most;
+    private long[] least;
+    private int[] slots;
+    private int size = 0;
+    private int tombstones = 0;
+
+    public UuidSlotIndex() {
+        this.allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        this.most = new long[capacity];
+        this.least = new long[capacity];
+        this.slots = new int[capacity];
+        Arrays.fill(this.slots, EMPTY);
+    }
+
+    private static int home(long most, long least, int mask) {
+        long hash = (most ^ least) * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+
+    /**
+     * @return Position of the UUID in the table, or -1.
+     */
+    private int find(long most, long least) {
+        int mask = this.slots.length - 1;
+        for (int i = home(most, least, mask); ; i = (i + 1) & mask) {
+            int slot = this.slots[i];
+            if (slot == EMPTY) {
+                return -1;
+            }
+            if (slot != TOMBSTONE && this.most[i] == most && this.least[i] == least) {
+                return i;
+            }
+        }
+    }
+
+    @Override
+    public int get(Object id) {
+        if (!(id instanceof UUID uuid)) {
+            return NONE;
+        }
+        int i = this.find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        return i < 0 ? NONE : this.slots[i];
+    }
+
+    @Override
+    public int put(UUID id, int slot) {
+        long most = id.getMostSignificantBits();
+        long least = id.getLeastSignificantBits();
+        int i = this.find(most, least);
+        if (i >= 0) {
+            int previous = this.slots[i];
+            this.slots[i] = slot;
+            return previous;
+        }
+
+        // at most half of the table is used by entries and tombstones, so probes stay short and always end
+        if ((this.size + this.tombstones + 1) * 2L > this.slots.length) {
+            this.rebuild((this.size + 1) * 4L > this.slots.length ? this.slots.length * 2 : this.slots.length);
+        }
+        int mask = this.slots.length - 1;
+        i = home(most, least, mask);
+        while (this.slots[i] >= 0) {
+            i = (i + 1) & mask;
+        }
+        if (this.slots[i] == TOMBSTONE) {
+            this.tombstones--;
+        }
+        this.most[i] = most;
+        this.least[i] = least;
+        this.slots[i] = slot;
+        this.size++;
+        return NONE;
+    }
+
+    @Override
+    public int remove(Object id) {
+        if (!(id instanceof UUID uuid)) {
+            return NONE;
+        }
+        int i = this.find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        if (i < 0) {
+            return NONE;
+        }
+        int previous = this.slots[i];
+        this.slots[i] = TOMBSTONE;
+        this.size--;
+        this.tombstones++;
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return Number of entries of the table, used or not; each takes 20 bytes of the arrays.
+     */
+    public int capacity() {
+        return this.slots.length;
+    }
+
+    /**
+     * Moves the entries to a new table, dropping the tombstones.
+     */
+    private void rebuild(int capacity) {
+        long[] oldMost = this.most;
+        long[] oldLeast = this.least;
+        int[] oldSlots = this.slots;
+        this.allocate(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldSlots.length; j++) {
+            if (oldSlots[j] >= 0) {
+                int i = home(oldMost[j], oldLeast[j], mask);
+                while (this.slots[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                this.most[i] = oldMost[j];
+                this.least[i] = oldLeast[j];
+                this.slots[i] = oldSlots[j];
+            }
+        }
+        this.tombstones = 0;
+    }
+}
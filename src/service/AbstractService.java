@@ -2,14 +2,16 @@ package service;
 
 import entity.Entity;
 import entity.Friendship;
-import entity.Tuple;
 import entity.User;
 import exception.RepositoryException;
 import exception.ServiceException;
+import repository.Page;
+import utility.ActivityStrategy;
 import validator.ValidateStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface AbstractService<ID> {
     /**
@@ -34,7 +36,7 @@ public interface AbstractService<ID> {
     Entity<ID> removeUser(ID id) throws ServiceException;
 
     /**
-     * Gets a user based on its email.
+     * Gets a user based on its ID.
      *
      * @param id ID of the user to get.
      * @return User based on its ID.
@@ -42,6 +44,34 @@ public interface AbstractService<ID> {
      */
     User getUser(ID id) throws ServiceException;
 
+    /**
+     * Gets a user based on its email.
+     *
+     * @param email Email of the user to get.
+     * @return User with the email.
+     * @throws ServiceException If no user has the email.
+     */
+    User getUserByEmail(String email) throws ServiceException;
+
+    /**
+     * Searches for the users whose first name, last name or email contains the query.
+     *
+     * @param query Text to search for.
+     * @param limit Maximum number of users found.
+     * @return The users found, the ones with a field that starts with the query first.
+     * @throws ServiceException If the users couldn't be searched.
+     */
+    List<User> searchUsers(String query, int limit) throws ServiceException;
+
+    /**
+     * Gets several users based on their IDs.
+     *
+     * @param ids IDs of the users to get.
+     * @return Users with the IDs, in the same order.
+     * @throws ServiceException If a user couldn't be found.
+     */
+    List<User> getUsers(List<ID> ids) throws ServiceException;
+
     /* TODO
      *     *//**
      * Update the user with the specified ID with user.
@@ -59,6 +89,32 @@ public interface AbstractService<ID> {
      */
     ArrayList<User> getUsers();
 
+    /**
+     * Returns a page of users.
+     *
+     * @param token Token of the page, from the previous page, or null for the first page.
+     * @param size  Maximum number of users of the page.
+     * @return The page of users.
+     * @throws ServiceException If the token is invalid, or the size isn't positive.
+     */
+    Page<User> getUsers(String token, int size) throws ServiceException;
+
+    /**
+     * Returns a page of users in alphabetical order, by last name and then first name.
+     *
+     * @param from  Last name from which the listing starts, or null to start with the first user.
+     * @param token Token of the page, from the previous page, or null for the first page.
+     * @param size  Maximum number of users of the page.
+     * @return The page of users.
+     * @throws ServiceException If the token is invalid, or the size isn't positive.
+     */
+    Page<User> getUsersByName(String from, String token, int size) throws ServiceException;
+
+    /**
+     * @return Lazy stream of all the users.
+     */
+    Stream<User> streamUsers();
+
     /**
      * Returns an iterable of users which are friends with the user with the specified id.
      *
@@ -83,7 +139,7 @@ public interface AbstractService<ID> {
      * @param id2 ID of the second user.
      * @return Friendship that was removed.
      */
-    Entity<Tuple<ID, ID>> removeFriendship(ID id1, ID id2) throws ServiceException;
+    Friendship removeFriendship(ID id1, ID id2) throws ServiceException;
 
     /**
      * Returns the friendship between two users.
@@ -101,13 +157,36 @@ public interface AbstractService<ID> {
      */
     ArrayList<Friendship> getFriendships();
 
+    /**
+     * Returns a page of friendships.
+     *
+     * @param token Token of the page, from the previous page, or null for the first page.
+     * @param size  Maximum number of friendships of the page.
+     * @return The page of friendships.
+     * @throws ServiceException If the token is invalid, or the size isn't positive.
+     */
+    Page<Friendship> getFriendships(String token, int size) throws ServiceException;
+
+    /**
+     * @return Lazy stream of all the friendships.
+     */
+    Stream<Friendship> streamFriendships();
+
     /**
      * @return Number of communities between users.
      */
     int getNumberOfCommunities();
 
     /**
-     * @return Most active community in the network.
+     * @return Most active community in the network, measured by its diameter.
      */
     List<List<ID>> mostActiveCommunity();
+
+    /**
+     * @param strategy Metric by which the activity of a community is measured.
+     * @return Most active communities in the network.
+     * @throws ServiceException If the activity of a community couldn't be measured with the strategy, such as the
+     *                          longest path of a community too large for it.
+     */
+    List<List<ID>> mostActiveCommunity(ActivityStrategy strategy) throws ServiceException;
 }
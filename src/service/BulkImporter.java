@@ -0,0 +1,435 @@
+package service;
+
+import entity.User;
+import exception.ServiceException;
+import exception.ValidatorException;
+import validator.UserValidator;
+import validator.ValidateStrategy;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Loads users and friendships from CSV or NDJSON files into a service.
+ * The file is read in chunks of lines which are parsed and validated in parallel, while the records are added to the
+ * network in file order on the calling thread. Every record is added once, without validating it again; records that
+ * can't be parsed, validated or added are written to a reject file as "line number, tab, reason, tab, line".
+ * Quoted CSV fields can't span several lines.
+ */
+public class BulkImporter {
+    public static final int DEFAULT_CHUNK_SIZE = 10_000;
+
+    private static final String[] USER_COLUMNS = {"firstName", "lastName", "email", "id"};
+    private static final String[] FRIENDSHIP_COLUMNS = {"user1", "user2"};
+
+    private final Service service;
+    private final int parallelism;
+    private final int chunkSize;
+
+    /**
+     * Parses one record from its fields; the parsers run on several threads at once.
+     */
+    private interface RecordParser<R> {
+        R parse(String[] fields) throws IllegalArgumentException, ValidatorException;
+    }
+
+    /**
+     * Validates the parsed records of a chunk at once.
+     */
+    private interface ChunkValidator<R> {
+        /**
+         * @return Errors of the records, in the same order; null for the valid records.
+         */
+        String[] validate(List<R> records);
+    }
+
+    /**
+     * Adds one parsed record to the network.
+     */
+    private interface RecordInserter<R> {
+        void insert(R record) throws ServiceException;
+    }
+
+    /**
+     * A line of the file, with its parsed record, or the reason it was rejected.
+     */
+    private static class Row<R> {
+        private final long line;
+        private final String text;
+        private final R record;
+        private final String error;
+
+        private Row(long line, String text, R record, String error) {
+            this.line = line;
+            this.text = text;
+            this.record = record;
+            this.error = error;
+        }
+    }
+
+    public BulkImporter(Service service) {
+        this(service, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param service     Service to which the records are added.
+     * @param parallelism Number of threads that parse the file.
+     * @param chunkSize   Number of lines parsed together.
+     */
+    public BulkImporter(Service service, int parallelism, int chunkSize) {
+        if (parallelism < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("Parallelism and chunk size must be at least 1!");
+        }
+        this.service = service;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports users, given by firstName, lastName, email and an optional id.
+     *
+     * @param input    File with the users.
+     * @param rejects  File to which the rejected records are written, or null to drop them.
+     * @param strategy Strategy by which every parsed chunk is validated, with {@link UserValidator#validateAll};
+     *                 the chunks are already validated on several threads, and PARALLEL also splits a large
+     *                 chunk between the threads of the common pool.
+     * @param listener Called with the progress after every chunk, or null.
+     * @return Report of the import.
+     * @throws ServiceException If a file couldn't be read or written.
+     */
+    public ImportProgress importUsers(Path input, Path rejects, ValidateStrategy strategy,
+                                      Consumer<ImportProgress> listener) throws ServiceException {
+        UserValidator validator = new UserValidator();
+        RecordParser<User> parser = fields -> {
+            if (fields.length != 3 && fields.length != 4) {
+                throw new IllegalArgumentException("Expected 3 or 4 fields, found " + fields.length + ".");
+            }
+            return fields.length == 4 && fields[3] != null && !fields[3].isEmpty()
+                    ? new User(UUID.fromString(fields[3]), fields[0], fields[1], fields[2])
+                    : new User(fields[0], fields[1], fields[2]);
+        };
+        return this.run(input, rejects, USER_COLUMNS, parser, users -> validator.validateAll(users, strategy),
+                this.service::importUser, listener);
+    }
+
+    /**
+     * Imports friendships, given by the IDs or emails of their users. The users must exist; emails are looked up
+     * in the email index of the service.
+     *
+     * @param input    File with the friendships.
+     * @param rejects  File to which the rejected records are written, or null to drop them.
+     * @param listener Called with the progress after every chunk, or null.
+     * @return Report of the import.
+     * @throws ServiceException If a file couldn't be read or written.
+     */
+    public ImportProgress importFriendships(Path input, Path rejects, Consumer<ImportProgress> listener)
+            throws ServiceException {
+        RecordParser<UUID[]> parser = fields -> {
+            if (fields.length != 2) {
+                throw new IllegalArgumentException("Expected 2 fields, found " + fields.length + ".");
+            }
+            return new UUID[]{this.resolve(fields[0]), this.resolve(fields[1])};
+        };
+        return this.run(input, rejects, FRIENDSHIP_COLUMNS, parser, null,
+                ids -> this.service.importFriendship(ids[0], ids[1]), listener);
+    }
+
+    /**
+     * @param user ID or email of a user.
+     * @return ID of the user.
+     */
+    private UUID resolve(String user) throws IllegalArgumentException {
+        if (user == null || user.isEmpty()) {
+            throw new IllegalArgumentException("User cannot be empty.");
+        }
+        if (user.indexOf('@') < 0) {
+            return UUID.fromString(user);
+        }
+        try {
+            return this.service.getUserByEmail(user).getId();
+        } catch (ServiceException sE) {
+            throw new IllegalArgumentException("No user has the email " + user + ".", sE);
+        }
+    }
+
+    private <R> ImportProgress run(Path input, Path rejects, String[] columns, RecordParser<R> parser,
+                                   ChunkValidator<R> validator, RecordInserter<R> inserter,
+                                   Consumer<ImportProgress> listener) throws ServiceException {
+        ImportFormat format = ImportFormat.of(input);
+        long start = System.nanoTime();
+        long[] counts = new long[3];
+        ExecutorService executor = Executors.newFixedThreadPool(this.parallelism);
+        ArrayDeque<Future<List<Row<R>>>> pending = new ArrayDeque<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter rejectWriter = rejects == null ? null : Files.newBufferedWriter(rejects, StandardCharsets.UTF_8)) {
+            List<String> lines = new ArrayList<>(this.chunkSize);
+            long firstLine = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+                if (lines.size() == this.chunkSize) {
+                    pending.add(this.submit(executor, lines, firstLine, format, columns, parser, validator));
+                    firstLine += lines.size();
+                    lines = new ArrayList<>(this.chunkSize);
+                    // a few chunks are parsed ahead of the inserts, so the memory stays bounded
+                    if (pending.size() > 2 * this.parallelism) {
+                        this.insert(pending.poll().get(), inserter, rejectWriter, counts, start, listener);
+                    }
+                }
+            }
+            if (!lines.isEmpty()) {
+                pending.add(this.submit(executor, lines, firstLine, format, columns, parser, validator));
+            }
+            while (!pending.isEmpty()) {
+                this.insert(pending.poll().get(), inserter, rejectWriter, counts, start, listener);
+            }
+        } catch (IOException iOE) {
+            throw new ServiceException("Couldn't import the file.", iOE);
+        } catch (ExecutionException eE) {
+            throw new ServiceException("Couldn't parse the file.", eE.getCause());
+        } catch (InterruptedException iE) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Import was interrupted.", iE);
+        } finally {
+            executor.shutdownNow();
+        }
+        return new ImportProgress(counts[0], counts[1], counts[2], System.nanoTime() - start);
+    }
+
+    private <R> Future<List<Row<R>>> submit(ExecutorService executor, List<String> lines, long firstLine,
+                                           ImportFormat format, String[] columns, RecordParser<R> parser,
+                                           ChunkValidator<R> validator) {
+        return executor.submit(() -> {
+            List<Row<R>> rows = new ArrayList<>(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                String text = lines.get(i);
+                long line = firstLine + i;
+                if (text.isBlank()) {
+                    continue;
+                }
+                try {
+                    String[] fields = format == ImportFormat.CSV ? splitCsv(text) : fieldsOf(parseObject(text), columns);
+                    if (line == 1 && format == ImportFormat.CSV && columns[0].equalsIgnoreCase(fields[0])) {
+                        continue;
+                    }
+                    rows.add(new Row<>(line, text, parser.parse(fields), null));
+                } catch (IllegalArgumentException | ValidatorException e) {
+                    rows.add(new Row<>(line, text, null, Objects.toString(e.getMessage(), e.getClass().getSimpleName()).trim()));
+                }
+            }
+            return validator == null ? rows : validate(rows, validator);
+        });
+    }
+
+    /**
+     * Validates the parsed records of a chunk together, turning the invalid ones into rejected rows.
+     */
+    private static <R> List<Row<R>> validate(List<Row<R>> rows, ChunkValidator<R> validator) {
+        List<R> records = new ArrayList<>(rows.size());
+        for (Row<R> row : rows) {
+            if (row.error == null) {
+                records.add(row.record);
+            }
+        }
+        String[] errors = validator.validate(records);
+        int next = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            Row<R> row = rows.get(i);
+            if (row.error == null) {
+                String error = errors[next++];
+                if (error != null) {
+                    rows.set(i, new Row<>(row.line, row.text, null, error.trim()));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private <R> void insert(List<Row<R>> rows, RecordInserter<R> inserter, BufferedWriter rejectWriter, long[] counts,
+                            long start, Consumer<ImportProgress> listener) throws IOException {
+        for (Row<R> row : rows) {
+            String error = row.error;
+            if (error == null) {
+                try {
+                    inserter.insert(row.record);
+                } catch (ServiceException sE) {
+                    error = sE.getMessage();
+                }
+            }
+
+            counts[0]++;
+            if (error == null) {
+                counts[1]++;
+            } else {
+                counts[2]++;
+                if (rejectWriter != null) {
+                    rejectWriter.write(row.line + "\t" + error.replace('\t', ' ') + "\t" + row.text);
+                    rejectWriter.newLine();
+                }
+            }
+        }
+        if (listener != null) {
+            listener.accept(new ImportProgress(counts[0], counts[1], counts[2], System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Splits a CSV line; empty unquoted fields are null.
+     */
+    static String[] splitCsv(String line) throws IllegalArgumentException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char character = line.charAt(i);
+            if (quoted) {
+                if (character != '"') {
+                    field.append(character);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (character == '"') {
+                quoted = true;
+                wasQuoted = true;
+            } else if (character == ',') {
+                fields.add(field.isEmpty() && !wasQuoted ? null : field.toString().trim());
+                field.setLength(0);
+                wasQuoted = false;
+            } else {
+                field.append(character);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field.");
+        }
+        fields.add(field.isEmpty() && !wasQuoted ? null : field.toString().trim());
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * @return The values of the columns, up to the last one present in the object.
+     */
+    private static String[] fieldsOf(Map<String, String> object, String[] columns) {
+        int count = 0;
+        for (int i = 0; i < columns.length; i++) {
+            if (object.containsKey(columns[i])) {
+                count = i + 1;
+            }
+        }
+        String[] fields = new String[count];
+        for (int i = 0; i < count; i++) {
+            fields[i] = object.get(columns[i]);
+        }
+        return fields;
+    }
+
+    /**
+     * Parses a flat JSON object whose values are strings or null.
+     */
+    static Map<String, String> parseObject(String line) throws IllegalArgumentException {
+        Map<String, String> object = new HashMap<>();
+        int[] position = {skipSpaces(line, 0)};
+        expect(line, position, '{');
+        if (peek(line, position) == '}') {
+            position[0]++;
+        } else {
+            while (true) {
+                String key = parseString(line, position);
+                expect(line, position, ':');
+                String value;
+                if (line.startsWith("null", position[0])) {
+                    position[0] += 4;
+                    value = null;
+                } else {
+                    value = parseString(line, position);
+                }
+                object.put(key, value);
+                if (peek(line, position) == ',') {
+                    position[0]++;
+                } else {
+                    expect(line, position, '}');
+                    break;
+                }
+            }
+        }
+        if (skipSpaces(line, position[0]) != line.length()) {
+            throw new IllegalArgumentException("Unexpected text after the object.");
+        }
+        return object;
+    }
+
+    private static int skipSpaces(String line, int position) {
+        while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static char peek(String line, int[] position) {
+        position[0] = skipSpaces(line, position[0]);
+        if (position[0] >= line.length()) {
+            throw new IllegalArgumentException("Unexpected end of the object.");
+        }
+        return line.charAt(position[0]);
+    }
+
+    private static void expect(String line, int[] position, char character) {
+        if (peek(line, position) != character) {
+            throw new IllegalArgumentException("Expected '" + character + "' at position " + position[0] + ".");
+        }
+        position[0]++;
+    }
+
+    private static String parseString(String line, int[] position) {
+        expect(line, position, '"');
+        StringBuilder string = new StringBuilder();
+        while (true) {
+            if (position[0] >= line.length()) {
+                throw new IllegalArgumentException("Unterminated string.");
+            }
+            char character = line.charAt(position[0]++);
+            if (character == '"') {
+                return string.toString();
+            }
+            if (character != '\\') {
+                string.append(character);
+                continue;
+            }
+            if (position[0] >= line.length()) {
+                throw new IllegalArgumentException("Unterminated string.");
+            }
+            char escaped = line.charAt(position[0]++);
+            switch (escaped) {
+                case '"', '\\', '/' -> string.append(escaped);
+                case 'b' -> string.append('\b');
+                case 'f' -> string.append('\f');
+                case 'n' -> string.append('\n');
+                case 'r' -> string.append('\r');
+                case 't' -> string.append('\t');
+                case 'u' -> {
+                    if (position[0] + 4 > line.length()) {
+                        throw new IllegalArgumentException("Invalid unicode escape.");
+                    }
+                    string.append((char) Integer.parseInt(line.substring(position[0], position[0] + 4), 16));
+                    position[0] += 4;
+                }
+                default -> throw new IllegalArgumentException("Invalid escape \\" + escaped + ".");
+            }
+        }
+    }
+}
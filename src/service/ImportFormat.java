@@ -0,0 +1,28 @@
+package service;
+
+import java.nio.file.Path;
+
+/**
+ * Format of a file read by the BulkImporter.
+ */
+public enum ImportFormat {
+    /**
+     * One record per line, with comma separated fields; fields may be quoted with ", and an optional header line
+     * names the columns.
+     * Users are firstName,lastName,email[,id]; friendships are user1,user2, given by ID or email.
+     */
+    CSV,
+    /**
+     * One JSON object per line, with string fields named like the CSV columns.
+     */
+    NDJSON;
+
+    /**
+     * @param file Path of a file.
+     * @return NDJSON for .ndjson and .jsonl files, CSV otherwise.
+     */
+    public static ImportFormat of(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl") ? NDJSON : CSV;
+    }
+}
@@ -0,0 +1,59 @@
+package service;
+
+/**
+ * Progress of a bulk import; the final progress is the report of the import.
+ */
+public class ImportProgress {
+    private final long records;
+    private final long imported;
+    private final long rejected;
+    private final long elapsedNanos;
+
+    public ImportProgress(long records, long imported, long rejected, long elapsedNanos) {
+        this.records = records;
+        this.imported = imported;
+        this.rejected = rejected;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return Number of records read so far.
+     */
+    public long getRecords() {
+        return this.records;
+    }
+
+    /**
+     * @return Number of records added to the network.
+     */
+    public long getImported() {
+        return this.imported;
+    }
+
+    /**
+     * @return Number of records written to the reject file.
+     */
+    public long getRejected() {
+        return this.rejected;
+    }
+
+    /**
+     * @return Time since the import started, in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    /**
+     * @return Records read per second.
+     */
+    public double getThroughput() {
+        return this.elapsedNanos == 0 ? 0 : this.records * 1e9 / this.elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d records (%d imported, %d rejected) in %.1f s, %.0f records/s",
+                this.records, this.imported, this.rejected, this.elapsedNanos / 1e9, this.getThroughput());
+    }
+}
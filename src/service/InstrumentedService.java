@@ -0,0 +1,252 @@
+package service;
+
+import entity.Entity;
+import entity.Friendship;
+import entity.User;
+import exception.RepositoryException;
+import exception.ServiceException;
+import metrics.LatencyHistogram;
+import metrics.OperationSnapshot;
+import metrics.ServiceOperationEvent;
+import repository.Page;
+import utility.ActivityStrategy;
+import validator.ValidateStrategy;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Service which forwards every call to another service, recording its latency and whether it failed.
+ * The recording takes no locks, so the service can be shared by several threads if the wrapped one can.
+ * Every call also emits a {@link ServiceOperationEvent}, which costs next to nothing when no flight recording runs.
+ * The streams are lazy, so only the time to create them is recorded. Bulk imports go to the wrapped service through
+ * a {@link BulkImporter}; running them through {@link #importUsers} and {@link #importFriendships} records each import
+ * as one operation.
+ *
+ * @param <ID> Type of the IDs of the users.
+ */
+public class InstrumentedService<ID> implements AbstractService<ID> {
+    private final AbstractService<ID> service;
+    private final List<Operation> operations = new ArrayList<>();
+
+    private final Operation addUser = this.operation("addUser");
+    private final Operation removeUser = this.operation("removeUser");
+    private final Operation getUser = this.operation("getUser");
+    private final Operation getUserByEmail = this.operation("getUserByEmail");
+    private final Operation searchUsers = this.operation("searchUsers");
+    private final Operation getUsersByIds = this.operation("getUsers(ids)");
+    private final Operation getUsers = this.operation("getUsers()");
+    private final Operation getUsersPage = this.operation("getUsers(page)");
+    private final Operation getUsersByName = this.operation("getUsersByName");
+    private final Operation streamUsers = this.operation("streamUsers");
+    private final Operation getFriendsOf = this.operation("getFriendsOf");
+    private final Operation addFriendship = this.operation("addFriendship");
+    private final Operation removeFriendship = this.operation("removeFriendship");
+    private final Operation getFriendship = this.operation("getFriendship");
+    private final Operation getFriendships = this.operation("getFriendships()");
+    private final Operation getFriendshipsPage = this.operation("getFriendships(page)");
+    private final Operation streamFriendships = this.operation("streamFriendships");
+    private final Operation getNumberOfCommunities = this.operation("getNumberOfCommunities");
+    private final Operation mostActiveCommunity = this.operation("mostActiveCommunity()");
+    private final Operation mostActiveCommunityBy = this.operation("mostActiveCommunity(strategy)");
+    private final Operation importUsers = this.operation("importUsers");
+    private final Operation importFriendships = this.operation("importFriendships");
+
+    /**
+     * @param service Service to which the calls are forwarded.
+     */
+    public InstrumentedService(AbstractService<ID> service) {
+        if (service == null) {
+            throw new IllegalArgumentException("Service cannot be null!");
+        }
+        this.service = service;
+    }
+
+    /**
+     * Measured method of the service.
+     */
+    private record Operation(String name, LatencyHistogram histogram) {
+    }
+
+    private Operation operation(String name) {
+        Operation operation = new Operation(name, new LatencyHistogram());
+        this.operations.add(operation);
+        return operation;
+    }
+
+    /**
+     * Calls the wrapped service, recording the latency of the call and whether it threw.
+     */
+    private static <T> T record(Operation operation, Supplier<T> call) {
+        ServiceOperationEvent event = new ServiceOperationEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = call.get();
+            failed = false;
+            return result;
+        } finally {
+            operation.histogram().record(System.nanoTime() - start, failed);
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation.name();
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+
+    private static void run(Operation operation, Runnable call) {
+        record(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return Statistics of every operation, in the order of the service interface.
+     */
+    public List<OperationSnapshot> snapshot() {
+        List<OperationSnapshot> snapshots = new ArrayList<>(this.operations.size());
+        for (Operation operation : this.operations) {
+            snapshots.add(operation.histogram().snapshot(operation.name()));
+        }
+        return snapshots;
+    }
+
+    @Override
+    public void addUser(String firstName, String lastName, String email, ValidateStrategy strategy) throws ServiceException {
+        run(this.addUser, () -> this.service.addUser(firstName, lastName, email, strategy));
+    }
+
+    @Override
+    public Entity<ID> removeUser(ID id) throws ServiceException {
+        return record(this.removeUser, () -> this.service.removeUser(id));
+    }
+
+    @Override
+    public User getUser(ID id) throws ServiceException {
+        return record(this.getUser, () -> this.service.getUser(id));
+    }
+
+    @Override
+    public User getUserByEmail(String email) throws ServiceException {
+        return record(this.getUserByEmail, () -> this.service.getUserByEmail(email));
+    }
+
+    @Override
+    public List<User> searchUsers(String query, int limit) throws ServiceException {
+        return record(this.searchUsers, () -> this.service.searchUsers(query, limit));
+    }
+
+    @Override
+    public List<User> getUsers(List<ID> ids) throws ServiceException {
+        return record(this.getUsersByIds, () -> this.service.getUsers(ids));
+    }
+
+    @Override
+    public ArrayList<User> getUsers() {
+        return record(this.getUsers, this.service::getUsers);
+    }
+
+    @Override
+    public Page<User> getUsers(String token, int size) throws ServiceException {
+        return record(this.getUsersPage, () -> this.service.getUsers(token, size));
+    }
+
+    @Override
+    public Page<User> getUsersByName(String from, String token, int size) throws ServiceException {
+        return record(this.getUsersByName, () -> this.service.getUsersByName(from, token, size));
+    }
+
+    @Override
+    public Stream<User> streamUsers() {
+        return record(this.streamUsers, this.service::streamUsers);
+    }
+
+    @Override
+    public ArrayList<User> getFriendsOf(ID id) throws RepositoryException {
+        return record(this.getFriendsOf, () -> this.service.getFriendsOf(id));
+    }
+
+    @Override
+    public void addFriendship(ID id1, ID id2) throws ServiceException, RepositoryException {
+        run(this.addFriendship, () -> this.service.addFriendship(id1, id2));
+    }
+
+    @Override
+    public Friendship removeFriendship(ID id1, ID id2) throws ServiceException {
+        return record(this.removeFriendship, () -> this.service.removeFriendship(id1, id2));
+    }
+
+    @Override
+    public Friendship getFriendship(ID id1, ID id2) throws ServiceException {
+        return record(this.getFriendship, () -> this.service.getFriendship(id1, id2));
+    }
+
+    @Override
+    public ArrayList<Friendship> getFriendships() {
+        return record(this.getFriendships, this.service::getFriendships);
+    }
+
+    @Override
+    public Page<Friendship> getFriendships(String token, int size) throws ServiceException {
+        return record(this.getFriendshipsPage, () -> this.service.getFriendships(token, size));
+    }
+
+    @Override
+    public Stream<Friendship> streamFriendships() {
+        return record(this.streamFriendships, this.service::streamFriendships);
+    }
+
+    @Override
+    public int getNumberOfCommunities() {
+        return record(this.getNumberOfCommunities, this.service::getNumberOfCommunities);
+    }
+
+    @Override
+    public List<List<ID>> mostActiveCommunity() {
+        return record(this.mostActiveCommunity, () -> this.service.mostActiveCommunity());
+    }
+
+    @Override
+    public List<List<ID>> mostActiveCommunity(ActivityStrategy strategy) throws ServiceException {
+        return record(this.mostActiveCommunityBy, () -> this.service.mostActiveCommunity(strategy));
+    }
+
+    /**
+     * Imports users with an importer of the wrapped service, recording the whole import as one operation.
+     *
+     * @param importer Importer which adds the users to the wrapped service.
+     * @param input    File with the users.
+     * @param rejects  File to which the rejected records are written, or null to drop them.
+     * @param strategy Strategy by which the users are validated.
+     * @param listener Called with the progress after every chunk, or null.
+     * @return Report of the import.
+     * @throws ServiceException If a file couldn't be read or written.
+     */
+    public ImportProgress importUsers(BulkImporter importer, Path input, Path rejects, ValidateStrategy strategy,
+                                      Consumer<ImportProgress> listener) throws ServiceException {
+        return record(this.importUsers, () -> importer.importUsers(input, rejects, strategy, listener));
+    }
+
+    /**
+     * Imports friendships with an importer of the wrapped service, recording the whole import as one operation.
+     *
+     * @param importer Importer which adds the friendships to the wrapped service.
+     * @param input    File with the friendships.
+     * @param rejects  File to which the rejected records are written, or null to drop them.
+     * @param listener Called with the progress after every chunk, or null.
+     * @return Report of the import.
+     * @throws ServiceException If a file couldn't be read or written.
+     */
+    public ImportProgress importFriendships(BulkImporter importer, Path input, Path rejects,
+                                            Consumer<ImportProgress> listener) throws ServiceException {
+        return record(this.importFriendships, () -> importer.importFriendships(input, rejects, listener));
+    }
+}
@@ -1,25 +1,142 @@
 package service;
 
 import entity.Friendship;
-import entity.Tuple;
+import entity.FriendshipKey;
 import entity.User;
 import exception.RepositoryException;
 import exception.ServiceException;
 import exception.ValidatorException;
+import metrics.GraphPhaseEvent;
 import repository.AbstractRepository;
+import repository.FriendshipRepository;
+import repository.Page;
+import utility.ActivityStrategy;
+import utility.CompactGraph;
+import utility.ConnectedComponents;
 import utility.Graph;
+import utility.NameIndex;
+import utility.TrigramIndex;
 import validator.UserValidator;
 import validator.ValidateStrategy;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 public class Service implements AbstractService<UUID> {
+    /**
+     * Largest community for which the exact longest path is computed.
+     */
+    public static final int LONGEST_PATH_MAX_MEMBERS = 64;
+
+    private final UserValidator validator = new UserValidator();
     private final AbstractRepository<UUID, User> users;
-    private final AbstractRepository<Tuple<UUID, UUID>, Friendship> friendships;
+    private final FriendshipRepository friendships;
+    /**
+     * Adjacency index: for every user, the IDs of its friends.
+     * Kept in sync with the friendship repository by every mutating operation.
+     */
+    private final Map<UUID, Set<UUID>> adjacency;
+    /**
+     * Email index: for every normalized email, the ID of its user. Emails are unique among the users added through
+     * the service; users loaded with the same email keep the first one loaded in the index.
+     */
+    private final Map<String, UUID> emails;
+    /**
+     * Search index over the first name, last name and email of the users.
+     */
+    private final TrigramIndex<UUID> search;
+    /**
+     * Alphabetical index of the users, by last name, first name and ID.
+     */
+    private final NameIndex names;
+    private final ConnectedComponents components;
+    private final Graph graph;
+
+    public Service(AbstractRepository<UUID, User> userRepo, AbstractRepository<FriendshipKey, Friendship> friendshipRepo) {
+        this(userRepo, friendshipRepo, 1);
+    }
 
-    public Service(AbstractRepository<UUID, User> userRepo, AbstractRepository<Tuple<UUID, UUID>, Friendship> friendshipRepo) {
+    /**
+     * Initializes a service whose graph algorithms run on parallelism threads.
+     *
+     * @param userRepo       Repository of users.
+     * @param friendshipRepo Repository of friendships.
+     * @param parallelism    Number of threads for the graph algorithms; 1 runs them on the calling thread.
+     */
+    public Service(AbstractRepository<UUID, User> userRepo, AbstractRepository<FriendshipKey, Friendship> friendshipRepo,
+                   int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1!");
+        }
+        this.graph = parallelism == 1 ? new Graph() : new Graph(new ForkJoinPool(parallelism));
         this.users = userRepo;
-        this.friendships = friendshipRepo;
+        this.friendships = FriendshipRepository.of(friendshipRepo);
+        this.adjacency = new HashMap<>();
+        this.emails = new HashMap<>();
+        this.search = new TrigramIndex<>();
+        this.names = new NameIndex();
+
+        this.migrateFriendships();
+        for (User user : this.users.getAll()) {
+            this.adjacency.put(user.getId(), new LinkedHashSet<>());
+            if (user.getEmail() != null) {
+                this.emails.putIfAbsent(normalize(user.getEmail()), user.getId());
+            }
+            this.search.add(user.getId(), user.getFirstName(), user.getLastName(), user.getEmail());
+            this.names.add(user.getId(), user.getLastName(), user.getFirstName());
+        }
+        for (Friendship friendship : this.friendships.getAll()) {
+            UUID id1 = friendship.getId().getLeft();
+            UUID id2 = friendship.getId().getRight();
+            this.adjacency.computeIfAbsent(id1, id -> new LinkedHashSet<>()).add(id2);
+            this.adjacency.computeIfAbsent(id2, id -> new LinkedHashSet<>()).add(id1);
+        }
+        this.components = new ConnectedComponents(this.adjacency);
+    }
+
+    /**
+     * Folds friendships stored once per direction into a single friendship under the canonical ID.
+     * The canonical entry is kept if it exists; otherwise the friendship is stored again under the canonical ID,
+     * with its original date.
+     */
+    private void migrateFriendships() {
+        List<FriendshipKey> folded = new ArrayList<>();
+        Map<FriendshipKey, Friendship> moved = new LinkedHashMap<>();
+        Set<FriendshipKey> canonical = new HashSet<>();
+        for (Friendship friendship : this.friendships.getAll()) {
+            if (friendship.isCanonical()) {
+                canonical.add(friendship.getId());
+            } else {
+                folded.add(friendship.getId());
+            }
+        }
+        if (folded.isEmpty()) {
+            return;
+        }
+        for (FriendshipKey id : folded) {
+            FriendshipKey key = Friendship.key(id.getLeft(), id.getRight());
+            if (!canonical.contains(key) && !moved.containsKey(key)) {
+                Friendship friendship = this.friendships.getOne(id);
+                moved.put(key, Friendship.between(id.getLeft(), id.getRight(), friendship.getFriendshipDate()));
+            }
+        }
+        // the canonical friendships are saved first, so a failure never loses a friendship; if the delete fails,
+        // the next load finds the canonical entries and only deletes the folded ones
+        try {
+            this.friendships.saveAll(moved.values());
+            this.friendships.deleteAll(folded);
+        } catch (RepositoryException rE) {
+            throw new ServiceException("Couldn't migrate the friendships.", rE);
+        }
+    }
+
+    /**
+     * @param email Email of a user.
+     * @return The email as it is indexed: trimmed and in lower case.
+     */
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
     }
 
     /**
@@ -35,19 +152,36 @@ public class Service implements AbstractService<UUID> {
     public void addUser(String firstName, String lastName, String email, ValidateStrategy strategy) throws ServiceException {
         User user = new User(firstName, lastName, email);
         try {
-            switch (strategy) {
-                case QUICK -> new UserValidator().validateQuick(user);
-                case SLOW -> new UserValidator().validateSlow(user);
-            }
+            this.validator.validate(user, strategy);
         } catch (ValidatorException vE) {
             throw new ServiceException("User wasn't validated.", vE);
         }
+        this.importUser(user);
+    }
 
+    /**
+     * Adds a user which was already validated.
+     *
+     * @param user The user to be added.
+     * @throws ServiceException If the user couldn't be added, or another user has the same email.
+     */
+    void importUser(User user) throws ServiceException {
+        String email = user.getEmail() == null ? null : normalize(user.getEmail());
+        if (email != null && this.emails.containsKey(email)) {
+            throw new ServiceException("A user with the same email already exists.");
+        }
         try {
             this.users.save(user);
         } catch (RepositoryException rE) {
             throw new ServiceException("Couldn't add user.");
         }
+        if (email != null) {
+            this.emails.put(email, user.getId());
+        }
+        this.search.add(user.getId(), user.getFirstName(), user.getLastName(), user.getEmail());
+        this.names.add(user.getId(), user.getLastName(), user.getFirstName());
+        this.adjacency.put(user.getId(), new LinkedHashSet<>());
+        this.components.addVertex(user.getId());
     }
 
     /**
@@ -60,19 +194,35 @@ public class Service implements AbstractService<UUID> {
     @Override
     public User removeUser(UUID userId) throws ServiceException {
         try {
-            Iterable<User> friendsOf = this.getFriendsOf(userId);
-            for (User user : friendsOf) {
-                this.friendships.delete(new Tuple<>(user.getId(), userId));
-                this.friendships.delete(new Tuple<>(userId, user.getId()));
+            Set<UUID> friendIds = this.adjacency.getOrDefault(userId, Collections.emptySet());
+            List<FriendshipKey> friendshipIds = new ArrayList<>(friendIds.size());
+            for (UUID friendId : friendIds) {
+                friendshipIds.add(Friendship.key(userId, friendId));
+            }
+            this.friendships.deleteAll(friendshipIds);
+
+            for (Iterator<UUID> iterator = friendIds.iterator(); iterator.hasNext(); ) {
+                UUID friendId = iterator.next();
+                iterator.remove();
+                this.adjacency.get(friendId).remove(userId);
+                this.components.removeEdge(userId, friendId);
             }
-            return this.users.delete(userId);
+            User removed = this.users.delete(userId);
+            if (removed.getEmail() != null) {
+                this.emails.remove(normalize(removed.getEmail()), userId);
+            }
+            this.search.remove(userId);
+            this.names.remove(userId, removed.getLastName(), removed.getFirstName());
+            this.adjacency.remove(userId);
+            this.components.removeVertex(userId);
+            return removed;
         } catch (RepositoryException rE) {
             throw new ServiceException("User couldn't be removed.", rE);
         }
     }
 
     /**
-     * Gets a user based on its email.
+     * Gets a user based on its ID.
      *
      * @param userId ID of the user to get.
      * @return User based on its ID.
@@ -87,6 +237,59 @@ public class Service implements AbstractService<UUID> {
         }
     }
 
+    /**
+     * Gets a user based on its email, ignoring the case and the surrounding whitespace.
+     *
+     * @param email Email of the user to get.
+     * @return User with the email.
+     * @throws ServiceException If no user has the email.
+     */
+    @Override
+    public User getUserByEmail(String email) throws ServiceException {
+        if (email == null) {
+            throw new ServiceException("Email cannot be null.");
+        }
+        UUID userId = this.emails.get(normalize(email));
+        if (userId == null) {
+            throw new ServiceException("No user has the email " + email + ".");
+        }
+        return this.getUser(userId);
+    }
+
+    /**
+     * Searches for the users whose first name, last name or email contains the query, ignoring the case.
+     * Users with a field that starts with the query come first.
+     *
+     * @param query Text to search for.
+     * @param limit Maximum number of users found.
+     * @return The users found.
+     * @throws ServiceException If the query is null, or the limit isn't positive.
+     */
+    @Override
+    public List<User> searchUsers(String query, int limit) throws ServiceException {
+        try {
+            return this.users.getMany(this.search.search(query, limit));
+        } catch (IllegalArgumentException | RepositoryException e) {
+            throw new ServiceException("Couldn't search for users.", e);
+        }
+    }
+
+    /**
+     * Gets several users based on their IDs.
+     *
+     * @param userIds IDs of the users to get.
+     * @return Users with the IDs, in the same order.
+     * @throws ServiceException If a user couldn't be found.
+     */
+    @Override
+    public List<User> getUsers(List<UUID> userIds) throws ServiceException {
+        try {
+            return this.users.getMany(userIds);
+        } catch (RepositoryException | IllegalArgumentException e) {
+            throw new ServiceException("Users couldn't be found.", e);
+        }
+    }
+
     /**
      * Returns the user list.
      *
@@ -99,6 +302,50 @@ public class Service implements AbstractService<UUID> {
         return userList;
     }
 
+    /**
+     * Returns a page of users.
+     *
+     * @param token Token of the page, from the previous page, or null for the first page.
+     * @param size  Maximum number of users of the page.
+     * @return The page of users.
+     * @throws ServiceException If the token is invalid, or the size isn't positive.
+     */
+    @Override
+    public Page<User> getUsers(String token, int size) throws ServiceException {
+        try {
+            return this.users.getPage(token, size);
+        } catch (IllegalArgumentException iAE) {
+            throw new ServiceException("Couldn't get the page of users.", iAE);
+        }
+    }
+
+    /**
+     * Returns a page of users in alphabetical order, by last name and then first name, ignoring the case.
+     *
+     * @param from  Last name from which the listing starts, or null to start with the first user.
+     * @param token Token of the page, from the previous page, or null for the first page.
+     * @param size  Maximum number of users of the page.
+     * @return The page of users.
+     * @throws ServiceException If the token is invalid, or the size isn't positive.
+     */
+    @Override
+    public Page<User> getUsersByName(String from, String token, int size) throws ServiceException {
+        try {
+            Page<UUID> page = this.names.page(from, token, size);
+            return new Page<>(this.users.getMany(page.getItems()), page.getNextToken());
+        } catch (IllegalArgumentException | RepositoryException e) {
+            throw new ServiceException("Couldn't get the page of users.", e);
+        }
+    }
+
+    /**
+     * @return Lazy stream of all the users.
+     */
+    @Override
+    public Stream<User> streamUsers() {
+        return this.users.stream();
+    }
+
     /**
      * Returns an iterable of users which are friends with the user with the specified id.
      *
@@ -107,30 +354,49 @@ public class Service implements AbstractService<UUID> {
      */
     @Override
     public ArrayList<User> getFriendsOf(UUID uuid) throws RepositoryException {
-        ArrayList<User> friends = new ArrayList<>();
-        for (Friendship friendship : this.friendships.getAll()) {
-            if (friendship.getId().getLeft().equals(uuid)) {
-                friends.add(this.users.getOne(friendship.getId().getRight()));
-            }
-        }
-        return friends;
+        Set<UUID> friendIds = this.adjacency.getOrDefault(uuid, Collections.emptySet());
+        return new ArrayList<>(this.users.getMany(friendIds));
     }
 
     /**
-     * Adds a friendship between two users.
+     * Adds a friendship between two users. The friendship is stored once, under its canonical ID.
      *
      * @param id1 ID of the first user in the friendship.
      * @param id2 ID of the second user in the friendship.
-     * @throws ServiceException If the friendship already exists
+     * @throws ServiceException If the friendship already exists, or the users are the same
      */
     @Override
     public void addFriendship(UUID id1, UUID id2) throws ServiceException, RepositoryException {
+        if (id1.equals(id2)) {
+            throw new ServiceException("A user can't be friends with itself.");
+        }
         try {
-            this.friendships.save(new Friendship(id1, id2));
-            this.friendships.save(new Friendship(id2, id1));
+            this.friendships.save(Friendship.between(id1, id2));
         } catch (RepositoryException rE) {
             throw new ServiceException("Couldn't add friendship.", rE);
         }
+        this.adjacency.computeIfAbsent(id1, id -> new LinkedHashSet<>()).add(id2);
+        this.adjacency.computeIfAbsent(id2, id -> new LinkedHashSet<>()).add(id1);
+        this.components.addEdge(id1, id2);
+    }
+
+    /**
+     * Adds a friendship between two existing users, checking for duplicates on the adjacency index.
+     *
+     * @param id1 ID of the first user in the friendship.
+     * @param id2 ID of the second user in the friendship.
+     * @throws ServiceException If a user doesn't exist, or the friendship already exists.
+     */
+    void importFriendship(UUID id1, UUID id2) throws ServiceException {
+        Set<UUID> friends1 = this.adjacency.get(id1);
+        Set<UUID> friends2 = this.adjacency.get(id2);
+        if (friends1 == null || friends2 == null) {
+            throw new ServiceException("User of the friendship doesn't exist.");
+        }
+        if (id1.equals(id2) || friends1.contains(id2)) {
+            throw new ServiceException("Couldn't add friendship.");
+        }
+        this.addFriendship(id1, id2);
     }
 
     /**
@@ -143,18 +409,22 @@ public class Service implements AbstractService<UUID> {
     @Override
     public Friendship removeFriendship(UUID id1, UUID id2) throws ServiceException {
         try {
-            Friendship friendship1to2 = this.friendships.getOne(new Tuple<>(id1, id2));
-            Friendship friendship2to1 = this.friendships.getOne(new Tuple<>(id2, id1));
-            this.friendships.delete(friendship1to2.getId());
-            this.friendships.delete(friendship2to1.getId());
-            return friendship1to2;
+            Friendship removed = this.friendships.delete(id1.getMostSignificantBits(), id1.getLeastSignificantBits(),
+                    id2.getMostSignificantBits(), id2.getLeastSignificantBits());
+            if (removed == null) {
+                throw new RepositoryException("Entity with the specified id doesn't exist!");
+            }
+            this.adjacency.get(id1).remove(id2);
+            this.adjacency.get(id2).remove(id1);
+            this.components.removeEdge(id1, id2);
+            return removed;
         } catch (RepositoryException rE) {
             throw new ServiceException("Friendship couldn't be removed.", rE);
         }
     }
 
     /**
-     * Returns the friendship between two users.
+     * Returns the friendship between two users, given in any order.
      *
      * @param id1 ID of the first user.
      * @param id2 ID of the second user.
@@ -163,7 +433,12 @@ public class Service implements AbstractService<UUID> {
     @Override
     public Friendship getFriendship(UUID id1, UUID id2) throws ServiceException {
         try {
-            return this.friendships.getOne(new Tuple<>(id1, id2));
+            Friendship friendship = this.friendships.getOne(id1.getMostSignificantBits(), id1.getLeastSignificantBits(),
+                    id2.getMostSignificantBits(), id2.getLeastSignificantBits());
+            if (friendship == null) {
+                throw new RepositoryException("Entity with the specified id doesn't exist!");
+            }
+            return friendship;
         } catch (RepositoryException rE) {
             throw new ServiceException("Couldn't get friendship.", rE);
         }
@@ -182,70 +457,132 @@ public class Service implements AbstractService<UUID> {
     }
 
     /**
-     * @return Number of communities between users.
+     * Returns a page of friendships.
+     *
+     * @param token Token of the page, from the previous page, or null for the first page.
+     * @param size  Maximum number of friendships of the page.
+     * @return The page of friendships.
+     * @throws ServiceException If the token is invalid, or the size isn't positive.
      */
     @Override
-    public int getNumberOfCommunities() {
-        //noinspection DuplicatedCode
-        ArrayList<UUID> userIds = new ArrayList<>();
-        HashMap<UUID, List<UUID>> friends = new HashMap<>();
-        this.users.getAll().forEach(user -> userIds.add(user.getId()));
+    public Page<Friendship> getFriendships(String token, int size) throws ServiceException {
+        try {
+            return this.friendships.getPage(token, size);
+        } catch (IllegalArgumentException iAE) {
+            throw new ServiceException("Couldn't get the page of friendships.", iAE);
+        }
+    }
+
+    /**
+     * @return Lazy stream of all the friendships.
+     */
+    @Override
+    public Stream<Friendship> streamFriendships() {
+        return this.friendships.stream();
+    }
 
-        for (UUID id : userIds) {
-            friends.put(id, new ArrayList<>());
+    /**
+     * Builds a compact snapshot of the network from the adjacency index.
+     * The users get their vertex index in the iteration order of the user repository.
+     *
+     * @return Snapshot of the network.
+     */
+    private CompactGraph buildGraph() {
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        for (User user : this.users.getAll()) {
+            builder.addVertex(user.getId());
         }
+        for (User user : this.users.getAll()) {
+            for (UUID friendId : this.adjacency.getOrDefault(user.getId(), Collections.emptySet())) {
+                builder.addEdge(user.getId(), friendId);
+            }
+        }
+        return builder.build();
+    }
 
-        for (UUID id : userIds) {
-            Iterable<User> friendsOf = this.getFriendsOf(id);
-            for (User user : friendsOf) {
-                friends.get(id).add(user.getId());
+    /**
+     * Ends the flight recorder event of a phase of the search for the most active community, filling its fields
+     * only if it is recorded.
+     *
+     * @param components Communities of the network, or null if they aren't known yet.
+     */
+    private static void phase(GraphPhaseEvent event, String phase, ActivityStrategy strategy, CompactGraph network,
+                              List<int[]> components) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.strategy = String.valueOf(strategy);
+            event.vertices = network.vertexCount();
+            event.friendships = network.edgeCount() / 2;
+            if (components != null) {
+                event.communities = components.size();
+                for (int[] component : components) {
+                    event.largestCommunity = Math.max(event.largestCommunity, component.length);
+                }
             }
+            event.commit();
         }
+    }
 
-        Graph graph = new Graph();
-        return graph.communities(userIds, friends).size();
+    /**
+     * @return Number of communities between users.
+     */
+    @Override
+    public int getNumberOfCommunities() {
+        return this.components.count();
     }
 
     /**
-     * @return A list of the most active communities in the network.
+     * @return A list of the most active communities in the network, measured by their diameter, which works for
+     * communities of any size.
      */
     @Override
     public List<List<UUID>> mostActiveCommunity() {
-        List<List<UUID>> communityMembers = new ArrayList<>();
+        return this.mostActiveCommunity(ActivityStrategy.DIAMETER);
+    }
 
-        Set<UUID> userSet = new HashSet<>();
-        //noinspection DuplicatedCode
-        ArrayList<UUID> userIds = new ArrayList<>();
-        HashMap<UUID, List<UUID>> friends = new HashMap<>();
+    /**
+     * @param strategy Metric by which the activity of a community is measured.
+     * @return A list of the most active communities in the network.
+     * @throws ServiceException If the strategy is LONGEST_PATH and a community has more than
+     *                          {@link #LONGEST_PATH_MAX_MEMBERS} members.
+     */
+    @Override
+    public List<List<UUID>> mostActiveCommunity(ActivityStrategy strategy) throws ServiceException {
+        List<List<UUID>> communityMembers = new ArrayList<>();
 
-        this.users.getAll().forEach(user -> userIds.add(user.getId()));
+        GraphPhaseEvent build = new GraphPhaseEvent();
+        build.begin();
+        CompactGraph network = this.buildGraph();
+        phase(build, "buildGraph", strategy, network, null);
 
-        for (UUID id : userIds) {
-            friends.put(id, new ArrayList<>());
-        }
+        GraphPhaseEvent search = new GraphPhaseEvent();
+        search.begin();
+        List<int[]> components = this.graph.communities(network);
+        phase(search, "communities", strategy, network, components);
 
-        for (UUID id : userIds) {
-            Iterable<User> friendsOf = this.getFriendsOf(id);
-            for (User user : friendsOf) {
-                friends.get(id).add(user.getId());
-            }
+        GraphPhaseEvent measure = new GraphPhaseEvent();
+        measure.begin();
+        int[] activities;
+        try {
+            activities = this.graph.activities(network, components, strategy, LONGEST_PATH_MAX_MEMBERS);
+        } catch (IllegalArgumentException iAE) {
+            throw new ServiceException("Couldn't measure the activity of a community.", iAE);
         }
+        phase(measure, "activities", strategy, network, components);
 
-        Graph graph = new Graph();
-
+        // the communities are compared in order, so the result doesn't depend on the parallelism
         int max = -1;
-        for (UUID id : userIds) {
-            if (!userSet.contains(id)) {
-                List<UUID> component = graph.runDFS(id, userSet, friends);
-                int path = graph.longestPath(component, friends);
-
-                if (path > max) {
-                    communityMembers.clear();
-                    communityMembers.add(component);
-                    max = path;
-                } else if (path == max) {
-                    communityMembers.add(component);
-                }
+        for (int i = 0; i < components.size(); i++) {
+            int[] component = components.get(i);
+            int path = activities[i];
+
+            if (path > max) {
+                communityMembers.clear();
+                communityMembers.add(network.toIds(component));
+                max = path;
+            } else if (path == max) {
+                communityMembers.add(network.toIds(component));
             }
         }
         return communityMembers;
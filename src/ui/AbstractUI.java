@@ -1,11 +1,13 @@
 package ui;
 
-import service.Service;
+import service.AbstractService;
+
+import java.util.UUID;
 
 public class AbstractUI {
-    protected final Service service;
+    protected final AbstractService<UUID> service;
 
-    public AbstractUI(Service service) {
+    public AbstractUI(AbstractService<UUID> service) {
         this.service = service;
     }
 }
@@ -2,29 +2,54 @@ package ui;
 
 import entity.User;
 import exception.ServiceException;
+import metrics.OperationSnapshot;
+import repository.Page;
+import service.AbstractService;
+import service.BulkImporter;
+import service.ImportProgress;
+import service.InstrumentedService;
 import service.Service;
+import utility.ActivityStrategy;
 import validator.ValidateStrategy;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public class ConsoleUI extends AbstractUI {
+    private static final int PAGE_SIZE = 20;
+
     private final HashMap<String, Action> actions = new HashMap<>();
     private final BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(System.in));
+    private final BulkImporter importer;
     private ConsoleUI consoleUI;
 
     public ConsoleUI(Service service) {
+        this(service, new BulkImporter(service));
+    }
+
+    /**
+     * @param service  Service used by the commands, possibly instrumented.
+     * @param importer Importer used by the import commands.
+     */
+    public ConsoleUI(AbstractService<UUID> service, BulkImporter importer) {
         super(service);
+        this.importer = importer;
         this.initCommands();
     }
 
+    /**
+     * @return The words of the input, or no words at the end of the input.
+     */
     private String[] splitInput(String input) {
-        return input.split(" ");
+        return input == null ? new String[0] : input.split(" ");
     }
 
     private void initCommands() {
@@ -32,11 +57,16 @@ public class ConsoleUI extends AbstractUI {
         actions.put("adauga_user", this::addUserCommand);
         actions.put("remove_user", this::removeUserCommand);
         actions.put("afisare_useri", this::showUsersCommand);
+        actions.put("cauta", this::searchCommand);
         actions.put("adauga_prietenie", this::addFriendshipCommand);
         actions.put("remove_prietenie", this::removeFriendshipCommand);
         actions.put("afisare_prieteni", this::showFriendsCommands);
         actions.put("comunitati", this::numberOfCommunitiesCommand);
-        actions.put("most_active", this::mostActiveCommunityCommand);
+        actions.put("most_active", () -> this.mostActiveCommunityCommand(ActivityStrategy.DIAMETER));
+        actions.put("most_active_drum", () -> this.mostActiveCommunityCommand(ActivityStrategy.LONGEST_PATH));
+        actions.put("importa_useri", () -> this.importCommand(true));
+        actions.put("importa_prietenii", () -> this.importCommand(false));
+        actions.put("stats", this::statsCommand);
         actions.put("exit", () -> System.out.println("Closing app..."));
     }
 
@@ -46,12 +76,17 @@ public class ConsoleUI extends AbstractUI {
                 help - afiseaza lista de comenzi
                 adauga_user - adauga un user ; parametrii se specifica separati prin spatiu ; un user are prenume, nume si adresa de email
                 remove_user - sterge un user specificat prin id
-                afisare_useri - afiseaza userii curenti
+                afisare_useri - afiseaza userii curenti, in ordine alfabetica
+                cauta - cauta useri dupa o parte din prenume, nume sau email
                 adauga_prietenie - adauga o prietenie intre doi useri specificati prin id
                 remove_prietenie - sterge o prieteni intre doi useri specificati prin id
                 afisare_prieteni - afiseaza prieteni unui user specificat prin id de la tastatura
                 comunitati - afiseaza numarul de comunitati din retea
-                most_active - afiseaza cea mai activa comunitate din retea
+                most_active - afiseaza cea mai activa comunitate din retea, masurata prin diametru
+                most_active_drum - afiseaza cea mai activa comunitate din retea, masurata prin cel mai lung drum ; doar pentru comunitati de cel mult 64 de useri
+                importa_useri - importa useri dintr-un fisier CSV sau NDJSON ; liniile respinse se scriu in fisierul <fisier>.rejects
+                importa_prietenii - importa prietenii dintr-un fisier CSV sau NDJSON, cu userii specificati prin id sau email
+                stats - afiseaza numarul de apeluri, erorile si latentele operatiilor aplicatiei
                 exit - iesire din aplicatie""");
     }
 
@@ -90,8 +125,7 @@ public class ConsoleUI extends AbstractUI {
 
         try {
             userId = UUID.fromString(fields[0]);
-            User user = this.service.removeUser(userId);
-            System.out.println("Removed user: " + user);
+            System.out.println("Removed user: " + this.service.removeUser(userId));
         } catch (IllegalArgumentException iAE) {
             System.out.println("Specified ID is invalid.");
         } catch (ServiceException sE) {
@@ -99,16 +133,50 @@ public class ConsoleUI extends AbstractUI {
         }
     }
 
-    private void showUsersCommand() {
-        ArrayList<User> userList = this.service.getUsers();
+    private void showUsersCommand() throws IOException {
+        Page<User> page = this.service.getUsersByName(null, null, PAGE_SIZE);
 
-        if (userList.isEmpty()) {
+        if (page.getItems().isEmpty()) {
             System.out.println("User list is empty!");
-        } else {
-            System.out.println("\nUSERS\n");
-            for (User user : userList) {
+            return;
+        }
+        System.out.println("\nUSERS\n");
+        while (true) {
+            for (User user : page.getItems()) {
+                System.out.println(user);
+            }
+            if (!page.hasNext()) {
+                return;
+            }
+            System.out.print("Show the next page? (y/n): ");
+            String input = this.bufferedReader.readLine();
+            if (input == null || !input.trim().equalsIgnoreCase("y")) {
+                return;
+            }
+            page = this.service.getUsersByName(null, page.getNextToken(), PAGE_SIZE);
+        }
+    }
+
+    private void searchCommand() throws IOException {
+        System.out.print("Introduce search text: ");
+        String input = this.bufferedReader.readLine();
+        if (input == null || input.isBlank()) {
+            System.out.println("Search text cannot be empty!");
+            return;
+        }
+
+        try {
+            List<User> found = this.service.searchUsers(input, PAGE_SIZE);
+            if (found.isEmpty()) {
+                System.out.println("No user matches the search!");
+                return;
+            }
+            System.out.println("\nFOUND USERS\n");
+            for (User user : found) {
                 System.out.println(user);
             }
+        } catch (ServiceException sE) {
+            System.out.println(sE.getMessage() + sE.getCause());
         }
     }
 
@@ -223,21 +291,82 @@ public class ConsoleUI extends AbstractUI {
         }
     }
 
-    private void mostActiveCommunityCommand() {
-        List<List<UUID>> communities = this.service.mostActiveCommunity();
+    private void mostActiveCommunityCommand(ActivityStrategy strategy) {
+        List<List<UUID>> communities;
+        try {
+            communities = this.service.mostActiveCommunity(strategy);
+        } catch (ServiceException sE) {
+            System.out.println(sE.getMessage() + sE.getCause());
+            return;
+        }
 
         if (communities.isEmpty()) {
             System.out.println("The network has no communities!");
         } else {
             for (List<UUID> community : communities) {
                 System.out.println("\nTHE MOST ACTIVE COMMUNITIES MEMBERS\n");
-                for (UUID userId : community) {
-                    System.out.println(this.service.getUser(userId));
+                for (User user : this.service.getUsers(community)) {
+                    System.out.println(user);
                 }
             }
         }
     }
 
+    private void importCommand(boolean users) throws IOException {
+        System.out.print("Introduce file path: ");
+        String input = this.bufferedReader.readLine();
+        if (input == null || input.isBlank()) {
+            System.out.println("File path cannot be empty!");
+            return;
+        }
+
+        Path file;
+        try {
+            file = Path.of(input.trim());
+        } catch (InvalidPathException iPE) {
+            System.out.println("Specified path is invalid.");
+            return;
+        }
+        Path rejects = file.resolveSibling(file.getFileName() + ".rejects");
+
+        try {
+            ImportProgress report = this.importFile(users, file, rejects);
+            System.out.println("Import finished: " + report);
+            if (report.getRejected() > 0) {
+                System.out.println("Rejected lines were written to: " + rejects);
+            }
+        } catch (ServiceException sE) {
+            System.out.println(sE.getMessage() + sE.getCause());
+        }
+    }
+
+    /**
+     * Runs an import, through the instrumented service if there is one, so that the import appears in the stats.
+     */
+    private ImportProgress importFile(boolean users, Path file, Path rejects) throws ServiceException {
+        Consumer<ImportProgress> listener = progress -> System.out.println(progress);
+        if (this.service instanceof InstrumentedService<UUID> instrumented) {
+            return users
+                    ? instrumented.importUsers(this.importer, file, rejects, ValidateStrategy.PARALLEL, listener)
+                    : instrumented.importFriendships(this.importer, file, rejects, listener);
+        }
+        return users
+                ? this.importer.importUsers(file, rejects, ValidateStrategy.PARALLEL, listener)
+                : this.importer.importFriendships(file, rejects, listener);
+    }
+
+    private void statsCommand() {
+        if (!(this.service instanceof InstrumentedService<UUID> instrumented)) {
+            System.out.println("Statistics are not collected.");
+            return;
+        }
+        for (OperationSnapshot snapshot : instrumented.snapshot()) {
+            if (snapshot.getCalls() > 0) {
+                System.out.println(snapshot);
+            }
+        }
+    }
+
     public void run() throws IOException {
         System.out.println("Welcome to a social network app. Down below are the commands of the app.");
         this.showCommands();
@@ -245,6 +374,9 @@ public class ConsoleUI extends AbstractUI {
         while (true) {
             System.out.print("\nIntroduce a command: ");
             String command = this.bufferedReader.readLine();
+            if (command == null) {
+                return;
+            }
 
             if (!this.actions.containsKey(command.toLowerCase())) {
                 System.out.println("Invalid command!");
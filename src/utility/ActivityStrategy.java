@@ -0,0 +1,16 @@
+package utility;
+
+/**
+ * Metric by which the activity of a community is measured.
+ */
+public enum ActivityStrategy {
+    /**
+     * Largest distance between two members; near-linear time.
+     */
+    DIAMETER,
+    /**
+     * Longest path between members; exact, but exponential, so it is limited to small communities, and a larger
+     * community makes the measurement fail.
+     */
+    LONGEST_PATH
+}
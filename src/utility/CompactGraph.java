@@ -0,0 +1,208 @@
+package utility;
+
+import java.util.*;
+
+/**
+ * Immutable snapshot of the network in compressed sparse row form.
+ * Every user is interned to a dense int in [0, vertexCount()), and the friends of vertex v are
+ * targets[offsets[v]] ... targets[offsets[v + 1] - 1], in the order they were added.
+ */
+public class CompactGraph {
+    private final UUID[] vertices;
+    private final int[] offsets;
+    private final int[] targets;
+
+    private CompactGraph(UUID[] vertices, int[] offsets, int[] targets) {
+        this.vertices = vertices;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Builds a snapshot from a user list and a User/Friends_of_User map.
+     *
+     * @param users   Users of the network, in the order in which they get their int index.
+     * @param friends Collection of User/Friends_of_User
+     * @return Snapshot of the network.
+     */
+    public static CompactGraph of(Iterable<UUID> users, Map<UUID, ? extends Collection<UUID>> friends) {
+        Builder builder = new Builder();
+        for (UUID user : users) {
+            builder.addVertex(user);
+        }
+        for (UUID user : users) {
+            Collection<UUID> friendsOfUser = friends.get(user);
+            if (friendsOfUser != null) {
+                for (UUID friend : friendsOfUser) {
+                    builder.addEdge(user, friend);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return Number of vertices of the graph.
+     */
+    public int vertexCount() {
+        return this.vertices.length;
+    }
+
+    /**
+     * @return Number of directed edges of the graph; a friendship counts once for each of its users.
+     */
+    public int edgeCount() {
+        return this.targets.length;
+    }
+
+    /**
+     * @param vertex Index of a vertex.
+     * @return ID of the user interned as vertex.
+     */
+    public UUID vertex(int vertex) {
+        return this.vertices[vertex];
+    }
+
+    /**
+     * @param vertex Index of a vertex.
+     * @return Number of friends of the vertex.
+     */
+    public int degree(int vertex) {
+        return this.offsets[vertex + 1] - this.offsets[vertex];
+    }
+
+    /**
+     * @param vertex Index of a vertex.
+     * @return Position in the target array of the first friend of vertex.
+     */
+    public int firstEdge(int vertex) {
+        return this.offsets[vertex];
+    }
+
+    /**
+     * @param vertex Index of a vertex.
+     * @return Position in the target array after the last friend of vertex.
+     */
+    public int endEdge(int vertex) {
+        return this.offsets[vertex + 1];
+    }
+
+    /**
+     * @param edge Position in the target array.
+     * @return Vertex at the end of the edge.
+     */
+    public int target(int edge) {
+        return this.targets[edge];
+    }
+
+    /**
+     * Subgraph induced by a community, whose vertex i is the vertex component[i] of this graph, so that the buffers
+     * of a search in the community are sized to the community rather than to the whole graph.
+     *
+     * @param component Vertices of a community; every friend of one of them must be in it, as after a DFS.
+     * @return Snapshot of the community.
+     */
+    public CompactGraph subgraph(int[] component) {
+        int n = component.length;
+        // vertex in the high half, local index in the low half, so a binary search by vertex finds the local index
+        long[] locals = new long[n];
+        UUID[] vertices = new UUID[n];
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            locals[i] = (long) component[i] << 32 | i;
+            vertices[i] = this.vertices[component[i]];
+            offsets[i + 1] = offsets[i] + this.degree(component[i]);
+        }
+        Arrays.sort(locals);
+        int[] targets = new int[offsets[n]];
+        for (int i = 0; i < n; i++) {
+            int edge = offsets[i];
+            for (int original = this.firstEdge(component[i]); original < this.endEdge(component[i]); original++) {
+                int position = Arrays.binarySearch(locals, (long) this.target(original) << 32);
+                targets[edge++] = (int) locals[position < 0 ? -position - 1 : position];
+            }
+        }
+        return new CompactGraph(vertices, offsets, targets);
+    }
+
+    /**
+     * Maps a list of vertex indexes back to user IDs.
+     *
+     * @param vertices Vertex indexes.
+     * @return IDs of the users, in the same order.
+     */
+    public List<UUID> toIds(int[] vertices) {
+        List<UUID> ids = new ArrayList<>(vertices.length);
+        for (int vertex : vertices) {
+            ids.add(this.vertices[vertex]);
+        }
+        return ids;
+    }
+
+    /**
+     * Incremental builder for a CompactGraph. Vertices get consecutive indexes in the order they are first seen.
+     */
+    public static class Builder {
+        private final Map<UUID, Integer> indexes = new HashMap<>();
+        private final List<UUID> vertices = new ArrayList<>();
+        private int[] sources = new int[16];
+        private int[] destinations = new int[16];
+        private int edges = 0;
+
+        /**
+         * Interns a user.
+         *
+         * @param user ID of the user.
+         * @return Index of the user in the graph.
+         */
+        public int addVertex(UUID user) {
+            Integer index = this.indexes.get(user);
+            if (index == null) {
+                index = this.vertices.size();
+                this.indexes.put(user, index);
+                this.vertices.add(user);
+            }
+            return index;
+        }
+
+        /**
+         * Adds a directed edge; users that weren't added yet are interned.
+         *
+         * @param from ID of the user.
+         * @param to   ID of the friend.
+         */
+        public void addEdge(UUID from, UUID to) {
+            int source = this.addVertex(from);
+            int destination = this.addVertex(to);
+            if (this.edges == this.sources.length) {
+                this.sources = Arrays.copyOf(this.sources, this.edges * 2);
+                this.destinations = Arrays.copyOf(this.destinations, this.edges * 2);
+            }
+            this.sources[this.edges] = source;
+            this.destinations[this.edges] = destination;
+            this.edges++;
+        }
+
+        /**
+         * @return Snapshot with the vertices and edges added so far.
+         */
+        public CompactGraph build() {
+            int n = this.vertices.size();
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i < this.edges; i++) {
+                offsets[this.sources[i] + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+
+            // counting sort by source keeps the insertion order of the friends of each vertex
+            int[] next = Arrays.copyOf(offsets, n);
+            int[] targets = new int[this.edges];
+            for (int i = 0; i < this.edges; i++) {
+                targets[next[this.sources[i]]++] = this.destinations[i];
+            }
+            return new CompactGraph(this.vertices.toArray(new UUID[0]), offsets, targets);
+        }
+    }
+}
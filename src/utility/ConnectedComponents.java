@@ -0,0 +1,215 @@
+package utility;
+
+import java.util.*;
+
+/**
+ * Connected components of a network which change together with the network.
+ * Every vertex has a component label; when two components are joined, the smaller one takes the label of the
+ * larger one, and when an edge is removed, two searches run in lockstep from its ends until they meet or one of
+ * them runs out of vertices, in which case the vertices it reached form a new component.
+ * The component of a vertex and the number of components are answered in O(1).
+ */
+public class ConnectedComponents {
+    private final Map<UUID, Set<UUID>> adjacency;
+    private final Map<UUID, Integer> labels = new HashMap<>();
+    private final Map<Integer, Integer> sizes = new HashMap<>();
+    private int nextLabel = 0;
+
+    /**
+     * Computes the components of a network.
+     * The adjacency map is only read; the owner must call the update methods after every change to it.
+     *
+     * @param adjacency Collection of User/Friends_of_User
+     */
+    public ConnectedComponents(Map<UUID, Set<UUID>> adjacency) {
+        this.adjacency = adjacency;
+        for (UUID vertex : adjacency.keySet()) {
+            if (!this.labels.containsKey(vertex)) {
+                int label = this.nextLabel++;
+                this.sizes.put(label, this.relabel(vertex, null, label));
+            }
+        }
+    }
+
+    /**
+     * @return Number of components.
+     */
+    public int count() {
+        return this.sizes.size();
+    }
+
+    /**
+     * @param vertex ID of the user.
+     * @return Label of the component of the user; two users are in the same component iff they have the same label.
+     * @throws IllegalArgumentException If the user isn't known.
+     */
+    public int componentOf(UUID vertex) throws IllegalArgumentException {
+        Integer label = this.labels.get(vertex);
+        if (label == null) {
+            throw new IllegalArgumentException("Unknown vertex!");
+        }
+        return label;
+    }
+
+    /**
+     * @param vertex ID of the user.
+     * @return Number of users in the component of the user.
+     */
+    public int sizeOf(UUID vertex) {
+        return this.sizes.get(this.componentOf(vertex));
+    }
+
+    /**
+     * Registers a new user, which is a component by itself.
+     *
+     * @param vertex ID of the new user.
+     */
+    public void addVertex(UUID vertex) {
+        if (!this.labels.containsKey(vertex)) {
+            int label = this.nextLabel++;
+            this.labels.put(vertex, label);
+            this.sizes.put(label, 1);
+        }
+    }
+
+    /**
+     * Forgets a user. All of its edges must have been removed before.
+     *
+     * @param vertex ID of the removed user.
+     */
+    public void removeVertex(UUID vertex) {
+        Integer label = this.labels.remove(vertex);
+        if (label != null) {
+            int size = this.sizes.remove(label) - 1;
+            if (size > 0) {
+                this.sizes.put(label, size);
+            }
+        }
+    }
+
+    /**
+     * Must be called after an edge was added to the adjacency map.
+     *
+     * @param vertex1 ID of the first user.
+     * @param vertex2 ID of the second user.
+     */
+    public void addEdge(UUID vertex1, UUID vertex2) {
+        this.addVertex(vertex1);
+        this.addVertex(vertex2);
+        int label1 = this.labels.get(vertex1);
+        int label2 = this.labels.get(vertex2);
+        if (label1 == label2) {
+            return;
+        }
+
+        int size1 = this.sizes.get(label1);
+        int size2 = this.sizes.get(label2);
+        if (size1 < size2) {
+            this.relabel(vertex1, label1, label2);
+            this.sizes.remove(label1);
+            this.sizes.put(label2, size1 + size2);
+        } else {
+            this.relabel(vertex2, label2, label1);
+            this.sizes.remove(label2);
+            this.sizes.put(label1, size1 + size2);
+        }
+    }
+
+    /**
+     * Must be called after an edge was removed from the adjacency map.
+     *
+     * @param vertex1 ID of the first user.
+     * @param vertex2 ID of the second user.
+     */
+    public void removeEdge(UUID vertex1, UUID vertex2) {
+        if (vertex1.equals(vertex2)) {
+            return;
+        }
+
+        Set<UUID> visited1 = new HashSet<>();
+        Set<UUID> visited2 = new HashSet<>();
+        ArrayDeque<UUID> queue1 = new ArrayDeque<>();
+        ArrayDeque<UUID> queue2 = new ArrayDeque<>();
+        visited1.add(vertex1);
+        visited2.add(vertex2);
+        queue1.add(vertex1);
+        queue2.add(vertex2);
+
+        // both searches advance one vertex at a time, so the work is bounded by the smaller side
+        while (true) {
+            if (this.step(queue1, visited1, visited2)) {
+                return;
+            }
+            if (queue1.isEmpty()) {
+                this.split(vertex1, visited1);
+                return;
+            }
+            if (this.step(queue2, visited2, visited1)) {
+                return;
+            }
+            if (queue2.isEmpty()) {
+                this.split(vertex2, visited2);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Expands one vertex of a breadth-first search.
+     *
+     * @return true if the search reached a vertex of the other search.
+     */
+    private boolean step(ArrayDeque<UUID> queue, Set<UUID> visited, Set<UUID> other) {
+        UUID vertex = queue.poll();
+        for (UUID next : this.adjacency.getOrDefault(vertex, Collections.emptySet())) {
+            if (other.contains(next)) {
+                return true;
+            }
+            if (visited.add(next)) {
+                queue.add(next);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves the vertices reached by a finished search to a new component.
+     */
+    private void split(UUID vertex, Set<UUID> reached) {
+        int oldLabel = this.labels.get(vertex);
+        int label = this.nextLabel++;
+        for (UUID reachedVertex : reached) {
+            this.labels.put(reachedVertex, label);
+        }
+        this.sizes.put(label, reached.size());
+        this.sizes.put(oldLabel, this.sizes.get(oldLabel) - reached.size());
+    }
+
+    /**
+     * Gives a new label to the component of a vertex.
+     *
+     * @param vertex   Vertex of the component.
+     * @param oldLabel Current label of the component, or null if its vertices have no label yet.
+     * @param label    New label.
+     * @return Number of relabeled vertices.
+     */
+    private int relabel(UUID vertex, Integer oldLabel, int label) {
+        ArrayDeque<UUID> queue = new ArrayDeque<>();
+        this.labels.put(vertex, label);
+        queue.add(vertex);
+        int count = 0;
+
+        while (!queue.isEmpty()) {
+            UUID current = queue.poll();
+            count++;
+            for (UUID next : this.adjacency.getOrDefault(current, Collections.emptySet())) {
+                Integer nextLabel = this.labels.get(next);
+                if (Objects.equals(nextLabel, oldLabel)) {
+                    this.labels.put(next, label);
+                    queue.add(next);
+                }
+            }
+        }
+        return count;
+    }
+}
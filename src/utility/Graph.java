@@ -1,8 +1,38 @@
 package utility;
 
+import metrics.CommunityActivityEvent;
+
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
 
 public class Graph {
+    /**
+     * Pool in which the compact graph algorithms run in parallel; null if they run on the calling thread.
+     */
+    private final ForkJoinPool pool;
+
+    public Graph() {
+        this.pool = null;
+    }
+
+    /**
+     * Initializes a graph whose compact graph algorithms split their work per community and per source vertex
+     * between the threads of a pool. The results are the same as the sequential ones.
+     *
+     * @param pool Pool in which the algorithms run.
+     */
+    public Graph(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool cannot be null!");
+        }
+        this.pool = pool;
+    }
 
     /**
      * Lee algorithm to calculate the longest path from a source to the rest of the members.
@@ -67,17 +97,37 @@ public class Graph {
      */
     public List<UUID> runDFS(UUID userId, Set<UUID> users, HashMap<UUID, List<UUID>> friends) {
         List<UUID> list = new ArrayList<>();
+        this.runDFS(userId, users, friends, list);
+        return list;
+    }
+
+    /**
+     * Iterative DFS on the network, which visits the users in the same order as a recursive DFS.
+     * The stack lives on the heap, so the depth of the search isn't limited by the thread stack.
+     *
+     * @param userId  UserId from where we start the search.
+     * @param users   Set of users.
+     * @param friends Friends with the user with userId.
+     * @param list    List to which the users of the community are appended.
+     */
+    private void runDFS(UUID userId, Set<UUID> users, HashMap<UUID, List<UUID>> friends, List<UUID> list) {
+        ArrayList<Iterator<UUID>> stack = new ArrayList<>();
         list.add(userId);
         users.add(userId);
+        stack.add(friends.get(userId).iterator());
 
-        for (UUID uuid : friends.get(userId)) {
-            if (!users.contains(uuid)) {
-                List<UUID> uuidFriends = runDFS(uuid, users, friends);
-                list.addAll(uuidFriends);
+        while (!stack.isEmpty()) {
+            Iterator<UUID> iterator = stack.get(stack.size() - 1);
+            if (iterator.hasNext()) {
+                UUID uuid = iterator.next();
+                if (users.add(uuid)) {
+                    list.add(uuid);
+                    stack.add(friends.get(uuid).iterator());
+                }
+            } else {
+                stack.remove(stack.size() - 1);
             }
         }
-
-        return list;
     }
 
     /**
@@ -91,7 +141,408 @@ public class Graph {
 
         for (UUID userId : users) {
             if (!set.contains(userId)) {
-                list.add(runDFS(userId, set, friends));
+                List<UUID> community = new ArrayList<>();
+                this.runDFS(userId, set, friends, community);
+                list.add(community);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Buffers of a breadth-first search over a compact graph, reused between the searches of a call.
+     * Between searches every distance is -1.
+     */
+    private static class Workspace {
+        private final int[] distance;
+        private final int[] parent;
+        private final int[] queue;
+
+        private Workspace(int vertexCount) {
+            this.distance = new int[vertexCount];
+            this.parent = new int[vertexCount];
+            this.queue = new int[vertexCount];
+            Arrays.fill(this.distance, -1);
+        }
+    }
+
+    /**
+     * Workspaces of one call over a compact graph. A traversal borrows a workspace and gives it back when it ends,
+     * so there are at most as many workspaces as traversals running at once, one per worker thread, and none is kept
+     * after the call. Only the breadth-first searches need them; the longest path searches run on the subgraph of
+     * their community, with buffers sized to it.
+     */
+    private static class Workspaces {
+        private final int vertexCount;
+        private final ConcurrentLinkedQueue<Workspace> free = new ConcurrentLinkedQueue<>();
+
+        private Workspaces(CompactGraph graph) {
+            this.vertexCount = graph.vertexCount();
+        }
+
+        /**
+         * Runs a traversal with a borrowed workspace; a traversal which throws may leave its workspace dirty,
+         * so the workspace isn't given back.
+         */
+        private int use(ToIntFunction<Workspace> traversal) {
+            Workspace workspace = this.free.poll();
+            if (workspace == null) {
+                workspace = new Workspace(this.vertexCount);
+            }
+            int result = traversal.applyAsInt(workspace);
+            this.free.offer(workspace);
+            return result;
+        }
+    }
+
+    /**
+     * @param values Values to be processed.
+     * @return Stream over values, parallel if the graph has a pool.
+     */
+    private IntStream stream(IntStream values) {
+        return this.pool == null ? values : values.parallel();
+    }
+
+    /**
+     * Runs a computation in the pool of the graph, or on the calling thread if there is no pool.
+     */
+    private <T> T execute(Supplier<T> computation) {
+        if (this.pool == null || ForkJoinTask.getPool() == this.pool) {
+            return computation.get();
+        }
+        return this.pool.submit(computation::get).join();
+    }
+
+    /**
+     * Lee algorithm on a compact graph; same result as the UUID version.
+     *
+     * @param graph   Snapshot of the network.
+     * @param source  Vertex from where we compute the longest path.
+     * @param visited Vertices on the current path.
+     * @return Longest path from source to all other members in the network.
+     */
+    private int lee(CompactGraph graph, int source, boolean[] visited) {
+        int max = -1;
+        for (int edge = graph.firstEdge(source), end = graph.endEdge(source); edge < end; edge++) {
+            int vertex = graph.target(edge);
+            if (!visited[vertex]) {
+                visited[vertex] = true;
+                int tempPath = lee(graph, vertex, visited);
+                if (tempPath > max) {
+                    max = tempPath;
+                }
+                visited[vertex] = false;
+            }
+        }
+        return max + 1;
+    }
+
+    /**
+     * Longest path of a community of a compact graph.
+     *
+     * @param graph     Snapshot of the network.
+     * @param component Vertices of the community.
+     * @return Longest path in the community.
+     */
+    public int longestPath(CompactGraph graph, int[] component) {
+        CompactGraph community = graph.subgraph(component);
+        int members = community.vertexCount();
+        return this.execute(() -> this.stream(IntStream.range(0, members))
+                .map(vertex -> this.lee(community, vertex, new boolean[members]))
+                .reduce(0, Math::max));
+    }
+
+    /**
+     * Exact longest path of a community of a compact graph, with branch and bound.
+     * A branch is cut when even visiting every vertex not on the current path couldn't beat the best path so far,
+     * so the result is the same as {@link #longestPath(CompactGraph, int[])}.
+     *
+     * @param graph       Snapshot of the network.
+     * @param component   Vertices of the community.
+     * @param maxVertices Largest community for which the search is allowed to run.
+     * @return Longest path in the community.
+     * @throws IllegalArgumentException If the community has more than maxVertices vertices.
+     */
+    public int longestPath(CompactGraph graph, int[] component, int maxVertices) throws IllegalArgumentException {
+        return this.execute(() -> this.exactLongestPath(graph, component, maxVertices));
+    }
+
+    private int exactLongestPath(CompactGraph graph, int[] component, int maxVertices) {
+        if (component.length > maxVertices) {
+            throw new IllegalArgumentException("Community has " + component.length
+                    + " members, the exact longest path is limited to " + maxVertices + ".");
+        }
+        CompactGraph community = graph.subgraph(component);
+        int members = community.vertexCount();
+        // the best path is shared between the sources, so every source prunes with the best path found by any
+        AtomicInteger best = new AtomicInteger(0);
+        this.stream(IntStream.range(0, members)).forEach(vertex -> {
+            if (best.get() < members) {
+                this.boundedLee(community, vertex, new boolean[members], 0, members, best);
+            }
+        });
+        return best.get();
+    }
+
+    /**
+     * Lee algorithm with branch and bound.
+     *
+     * @param graph     Snapshot of the network.
+     * @param source    Last vertex of the current path.
+     * @param visited   Vertices on the current path.
+     * @param length    Length of the current path.
+     * @param remaining Number of vertices of the community which aren't on the current path.
+     * @param best      Longest path found so far; updated by the search.
+     */
+    private void boundedLee(CompactGraph graph, int source, boolean[] visited, int length, int remaining, AtomicInteger best) {
+        if (length > best.get()) {
+            best.accumulateAndGet(length, Math::max);
+        }
+        if (length + remaining <= best.get()) {
+            return;
+        }
+        for (int edge = graph.firstEdge(source), end = graph.endEdge(source); edge < end; edge++) {
+            int vertex = graph.target(edge);
+            if (!visited[vertex]) {
+                visited[vertex] = true;
+                this.boundedLee(graph, vertex, visited, length + 1, remaining - 1, best);
+                visited[vertex] = false;
+                if (length + remaining <= best.get()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Breadth-first search which records the distances from source.
+     *
+     * @param graph    Snapshot of the network.
+     * @param source   Vertex from where we start the search.
+     * @param distance Distances from source; must be -1 for every vertex of the community.
+     * @param queue    Buffer which receives the vertices in the order they were reached.
+     * @param parent   Buffer which receives the BFS parent of every reached vertex, may be null.
+     * @return Number of reached vertices.
+     */
+    private int bfs(CompactGraph graph, int source, int[] distance, int[] queue, int[] parent) {
+        int head = 0;
+        int tail = 0;
+        distance[source] = 0;
+        queue[tail++] = source;
+
+        while (head < tail) {
+            int vertex = queue[head++];
+            for (int edge = graph.firstEdge(vertex), end = graph.endEdge(vertex); edge < end; edge++) {
+                int next = graph.target(edge);
+                if (distance[next] < 0) {
+                    distance[next] = distance[vertex] + 1;
+                    if (parent != null) {
+                        parent[next] = vertex;
+                    }
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Resets the distances of the vertices reached by a breadth-first search.
+     */
+    private void clear(int[] distance, int[] queue, int reached) {
+        for (int i = 0; i < reached; i++) {
+            distance[queue[i]] = -1;
+        }
+    }
+
+    /**
+     * Eccentricity of a vertex: its distance to the farthest member of its community.
+     */
+    private int eccentricity(CompactGraph graph, int source, Workspace workspace) {
+        int reached = this.bfs(graph, source, workspace.distance, workspace.queue, null);
+        int eccentricity = workspace.distance[workspace.queue[reached - 1]];
+        this.clear(workspace.distance, workspace.queue, reached);
+        return eccentricity;
+    }
+
+    /**
+     * Diameter of a community of a compact graph: the largest distance between two of its members.
+     * Uses a double sweep to find a central vertex and then iFUB, which in practice needs only a few BFS runs.
+     *
+     * @param graph     Snapshot of the network.
+     * @param component Vertices of the community.
+     * @return Diameter of the community.
+     */
+    public int diameter(CompactGraph graph, int[] component) {
+        return this.diameter(graph, component, new Workspace(graph.vertexCount()));
+    }
+
+    private int diameter(CompactGraph graph, int[] component, Workspace workspace) {
+        if (component.length <= 1) {
+            return 0;
+        }
+        int[] distance = workspace.distance;
+        int[] queue = workspace.queue;
+        int[] parent = workspace.parent;
+
+        // double sweep: the farthest vertex from the farthest vertex gives a lower bound and a central vertex
+        int reached = this.bfs(graph, component[0], distance, queue, null);
+        int first = queue[reached - 1];
+        this.clear(distance, queue, reached);
+        reached = this.bfs(graph, first, distance, queue, parent);
+        int last = queue[reached - 1];
+        int lowerBound = distance[last];
+        int center = last;
+        for (int step = 0; step < lowerBound / 2; step++) {
+            center = parent[center];
+        }
+        this.clear(distance, queue, reached);
+
+        // iFUB: vertices are checked from the farthest BFS level of center inwards
+        reached = this.bfs(graph, center, distance, queue, null);
+        int[] order = Arrays.copyOf(queue, reached);
+        int[] levels = new int[reached];
+        for (int i = 0; i < reached; i++) {
+            levels[i] = distance[order[i]];
+        }
+        this.clear(distance, order, reached);
+        int level = levels[reached - 1];
+        lowerBound = Math.max(lowerBound, level);
+
+        int position = reached - 1;
+        while (level > 0) {
+            int levelMax = 0;
+            while (position >= 0 && levels[position] == level) {
+                levelMax = Math.max(levelMax, this.eccentricity(graph, order[position], workspace));
+                position--;
+            }
+            lowerBound = Math.max(lowerBound, levelMax);
+            if (lowerBound > 2 * (level - 1)) {
+                return lowerBound;
+            }
+            level--;
+        }
+        return lowerBound;
+    }
+
+    /**
+     * Measures the activity of every community of a compact graph.
+     * With a pool, the communities are measured in parallel, and so are the sources of the longest path.
+     *
+     * @param graph       Snapshot of the network.
+     * @param components  Vertices of every community.
+     * @param strategy    Metric by which the activity is measured.
+     * @param maxVertices Largest community for which the exact longest path is allowed to run.
+     * @return Activity of every community, in the order of components.
+     * @throws IllegalArgumentException If a community is too large for the strategy.
+     */
+    public int[] activities(CompactGraph graph, List<int[]> components, ActivityStrategy strategy, int maxVertices)
+            throws IllegalArgumentException {
+        Workspaces workspaces = new Workspaces(graph);
+        return this.execute(() -> this.stream(IntStream.range(0, components.size()))
+                .map(i -> this.activity(graph, components.get(i), strategy, maxVertices, workspaces))
+                .toArray());
+    }
+
+    /**
+     * Measures the activity of one community, emitting a flight recorder event if it is recorded.
+     */
+    private int activity(CompactGraph graph, int[] component, ActivityStrategy strategy, int maxVertices,
+                         Workspaces workspaces) {
+        CommunityActivityEvent event = new CommunityActivityEvent();
+        event.begin();
+        int activity = switch (strategy) {
+            case DIAMETER -> workspaces.use(workspace -> this.diameter(graph, component, workspace));
+            case LONGEST_PATH -> this.exactLongestPath(graph, component, maxVertices);
+        };
+        event.end();
+        if (event.shouldCommit()) {
+            int degrees = 0;
+            for (int vertex : component) {
+                degrees += graph.degree(vertex);
+            }
+            event.strategy = strategy.name();
+            event.members = component.length;
+            event.friendships = degrees / 2;
+            event.activity = activity;
+            event.commit();
+        }
+        return activity;
+    }
+
+    /**
+     * Iterative DFS on a compact graph which appends the vertices, in the same order as the recursive DFS,
+     * into a shared output buffer.
+     *
+     * @param graph   Snapshot of the network.
+     * @param source  Vertex from where we start the search.
+     * @param visited Visited vertices; updated by the search.
+     * @param stack   Buffer for the vertices on the DFS stack, at least vertexCount() long.
+     * @param cursors Buffer for the next edge of every vertex on the stack, at least vertexCount() long.
+     * @param out     Buffer where the vertices of the community are appended.
+     * @param size    Number of vertices already in out.
+     * @return Number of vertices in out after the search.
+     */
+    private int runDFS(CompactGraph graph, int source, boolean[] visited, int[] stack, int[] cursors, int[] out, int size) {
+        int top = 0;
+        visited[source] = true;
+        out[size++] = source;
+        stack[0] = source;
+        cursors[0] = graph.firstEdge(source);
+
+        while (top >= 0) {
+            int vertex = stack[top];
+            if (cursors[top] < graph.endEdge(vertex)) {
+                int next = graph.target(cursors[top]++);
+                if (!visited[next]) {
+                    visited[next] = true;
+                    out[size++] = next;
+                    top++;
+                    stack[top] = next;
+                    cursors[top] = graph.firstEdge(next);
+                }
+            } else {
+                top--;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * DFS on a compact graph.
+     *
+     * @param graph   Snapshot of the network.
+     * @param source  Vertex from where we start the search.
+     * @param visited Visited vertices; updated by the search.
+     * @return Vertices of the community of source.
+     */
+    public int[] runDFS(CompactGraph graph, int source, boolean[] visited) {
+        int n = graph.vertexCount();
+        int[] out = new int[n];
+        int size = this.runDFS(graph, source, visited, new int[n], new int[n], out, 0);
+        return Arrays.copyOf(out, size);
+    }
+
+    /**
+     * Calculates the communities of a compact graph using DFS.
+     *
+     * @param graph Snapshot of the network.
+     * @return Vertices of every community, in the order of their first vertex.
+     */
+    public List<int[]> communities(CompactGraph graph) {
+        int n = graph.vertexCount();
+        boolean[] visited = new boolean[n];
+        int[] stack = new int[n];
+        int[] cursors = new int[n];
+        int[] out = new int[n];
+        List<int[]> list = new ArrayList<>();
+
+        int size = 0;
+        for (int vertex = 0; vertex < n; vertex++) {
+            if (!visited[vertex]) {
+                int start = size;
+                size = this.runDFS(graph, vertex, visited, stack, cursors, out, size);
+                list.add(Arrays.copyOfRange(out, start, size));
             }
         }
         return list;
@@ -0,0 +1,116 @@
+package utility;
+
+import repository.Page;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Ordered index of users by last name, first name and ID, in a skip list.
+ * The names are compared ignoring the case, and the ID breaks the ties, so every user has its own position.
+ * A page starts right after the key in its token, so it is found in O(log n) and read in O(page), whatever
+ * changed before it. Readers don't block writers: a scan sees the users added or removed during it or not.
+ */
+public class NameIndex {
+    private final ConcurrentSkipListSet<Key> keys = new ConcurrentSkipListSet<>();
+
+    /**
+     * Position of a user in the index.
+     */
+    private record Key(String lastName, String firstName, UUID id) implements Comparable<Key> {
+        private static final Comparator<Key> ORDER = Comparator
+                .comparing(Key::lastName, String.CASE_INSENSITIVE_ORDER)
+                .thenComparing(Key::lastName)
+                .thenComparing(Key::firstName, String.CASE_INSENSITIVE_ORDER)
+                .thenComparing(Key::firstName)
+                .thenComparing(Key::id);
+
+        private Key(String lastName, String firstName, UUID id) {
+            this.lastName = lastName == null ? "" : lastName;
+            this.firstName = firstName == null ? "" : firstName;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key key) {
+            return ORDER.compare(this, key);
+        }
+
+        private String token() {
+            String text = this.lastName + '\0' + this.firstName + '\0' + this.id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static Key of(String token) throws IllegalArgumentException {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\0", -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid page token!");
+            }
+            return new Key(parts[0], parts[1], UUID.fromString(parts[2]));
+        }
+    }
+
+    /**
+     * @return Number of indexed users.
+     */
+    public int size() {
+        return this.keys.size();
+    }
+
+    /**
+     * Indexes a user.
+     *
+     * @param id        ID of the user.
+     * @param lastName  Last name of the user.
+     * @param firstName First name of the user.
+     */
+    public void add(UUID id, String lastName, String firstName) {
+        this.keys.add(new Key(lastName, firstName, id));
+    }
+
+    /**
+     * Removes a user, indexed with the same names.
+     *
+     * @param id        ID of the user.
+     * @param lastName  Last name of the user.
+     * @param firstName First name of the user.
+     */
+    public void remove(UUID id, String lastName, String firstName) {
+        this.keys.remove(new Key(lastName, firstName, id));
+    }
+
+    /**
+     * Lists the users in alphabetical order, one page at a time.
+     *
+     * @param from  Last name from which the listing starts, or null to start with the first user.
+     * @param token Token of the page, from the previous page, or null for the first page.
+     * @param size  Maximum number of users of the page.
+     * @return The page of IDs of users.
+     * @throws IllegalArgumentException If the token is malformed, or the size isn't positive.
+     */
+    public Page<UUID> page(String from, String token, int size) throws IllegalArgumentException {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be positive!");
+        }
+        NavigableSet<Key> tail;
+        if (token != null) {
+            tail = this.keys.tailSet(Key.of(token), false);
+        } else if (from != null) {
+            // the smallest key with the last name in any case: upper case, an empty first name and the smallest ID
+            Key start = new Key(from.toUpperCase(Locale.ROOT), "", new UUID(Long.MIN_VALUE, Long.MIN_VALUE));
+            tail = this.keys.tailSet(start, true);
+        } else {
+            tail = this.keys;
+        }
+
+        List<UUID> items = new ArrayList<>(Math.min(size, 64));
+        Key last = null;
+        Iterator<Key> iterator = tail.iterator();
+        while (items.size() < size && iterator.hasNext()) {
+            last = iterator.next();
+            items.add(last.id());
+        }
+        return new Page<>(items, iterator.hasNext() ? last.token() : null);
+    }
+}
@@ -0,0 +1,311 @@
+package utility;
+
+import entity.Friendship;
+import entity.FriendshipKey;
+import entity.User;
+import exception.RepositoryException;
+import repository.AbstractRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Generator of synthetic social networks, for load and scale tests.
+ * The network depends only on the model, the parameters and the seed: the users are numbered from 0, user i gets
+ * the same ID, names and email for every model, and the friendships are drawn from a SplittableRandom seeded with
+ * the seed. The friendships are generated as pairs of user numbers, without building a graph, in time linear in
+ * their number: Erdős–Rényi and the stochastic block model skip over the pairs which aren't friends with
+ * geometrically distributed jumps, and Barabási–Albert samples the ends of the existing friendships.
+ * There are no duplicate friendships and nobody is a friend of itself.
+ */
+public class NetworkGenerator {
+    /**
+     * Date of all the generated friendships.
+     */
+    public static final LocalDateTime FRIENDSHIP_DATE = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    private static final int BATCH_SIZE = 65_536;
+    private static final String[] FIRST_NAMES = {"Ana", "Andrei", "Bogdan", "Carmen", "Cristian", "Daniela", "Elena",
+            "Florin", "Gabriel", "Ioana", "Ion", "Laura", "Maria", "Marius", "Mihai", "Radu", "Sorina", "Vlad"};
+    private static final String[] LAST_NAMES = {"Albu", "Barbu", "Chiriac", "Dinu", "Ene", "Florea", "Georgescu",
+            "Ionescu", "Lazar", "Muresan", "Neagu", "Popa", "Remus", "Stan", "Toma", "Ursu", "Voicu", "Zamfir"};
+
+    private final NetworkModel model;
+    private final int users;
+    private final double degree;
+    private final int communities;
+    private final double mixing;
+    private final long seed;
+
+    /**
+     * Receives the generated friendships, as pairs of user numbers.
+     */
+    public interface FriendshipConsumer {
+        void accept(int user1, int user2);
+    }
+
+    /**
+     * Initializes a generator; the stochastic block model gets 10 communities, with a tenth of the friends outside.
+     *
+     * @param model  Model of the network.
+     * @param users  Number of users.
+     * @param degree Average number of friends of a user.
+     * @param seed   Seed of the random numbers.
+     */
+    public NetworkGenerator(NetworkModel model, int users, double degree, long seed) {
+        this(model, users, degree, 10, 0.1, seed);
+    }
+
+    /**
+     * @param model       Model of the network.
+     * @param users       Number of users.
+     * @param degree      Average number of friends of a user.
+     * @param communities Number of communities of the stochastic block model.
+     * @param mixing      Fraction of the friends of a user outside its community, in the stochastic block model.
+     * @param seed        Seed of the random numbers.
+     * @throws IllegalArgumentException If a parameter is out of its range.
+     */
+    public NetworkGenerator(NetworkModel model, int users, double degree, int communities, double mixing, long seed)
+            throws IllegalArgumentException {
+        if (model == null) {
+            throw new IllegalArgumentException("Model cannot be null!");
+        }
+        if (users < 0 || degree < 0 || communities < 1 || communities > Math.max(users, 1)
+                || mixing < 0 || mixing > 1) {
+            throw new IllegalArgumentException("Invalid network parameters!");
+        }
+        this.model = model;
+        this.users = users;
+        this.degree = degree;
+        this.communities = communities;
+        this.mixing = mixing;
+        this.seed = seed;
+    }
+
+    /**
+     * @param user Number of a user.
+     * @return ID of the user; a random version 4 UUID, derived from the seed and the number.
+     */
+    public UUID id(int user) {
+        SplittableRandom random = new SplittableRandom(this.seed ^ (user * 0x9E3779B97F4A7C15L));
+        long most = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long least = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(most, least);
+    }
+
+    /**
+     * @param user Number of a user.
+     * @return The user, with valid names and a unique email.
+     */
+    public User user(int user) {
+        String firstName = FIRST_NAMES[user % FIRST_NAMES.length];
+        String lastName = LAST_NAMES[(user / FIRST_NAMES.length) % LAST_NAMES.length];
+        String email = firstName.toLowerCase() + "." + lastName.toLowerCase() + user + "@mail.com";
+        return new User(this.id(user), firstName, lastName, email);
+    }
+
+    /**
+     * Generates the friendships.
+     *
+     * @param consumer Receives every friendship once.
+     * @return Number of friendships.
+     */
+    public long friendships(FriendshipConsumer consumer) {
+        SplittableRandom random = new SplittableRandom(this.seed);
+        long[] count = new long[1];
+        FriendshipConsumer counting = (user1, user2) -> {
+            count[0]++;
+            consumer.accept(user1, user2);
+        };
+        switch (this.model) {
+            case ERDOS_RENYI -> skip(random, 0, this.users, this.degree / Math.max(this.users - 1, 1), counting);
+            case BARABASI_ALBERT -> this.preferentialAttachment(random, counting);
+            case STOCHASTIC_BLOCK -> this.blocks(random, counting);
+        }
+        return count[0];
+    }
+
+    /**
+     * Generates every pair of the users in [first, first + count) with probability p, by skipping over the pairs
+     * in between; the pairs are enumerated as (v, w) with w < v.
+     */
+    private static void skip(SplittableRandom random, int first, int count, double p, FriendshipConsumer consumer) {
+        if (p <= 0 || count < 2) {
+            return;
+        }
+        double logQ = Math.log(1 - Math.min(p, 1));
+        long v = 1;
+        long w = -1;
+        while (v < count) {
+            w += 1 + (long) Math.floor(Math.log(1 - random.nextDouble()) / logQ);
+            while (w >= v && v < count) {
+                w -= v;
+                v++;
+            }
+            if (v < count) {
+                consumer.accept(first + (int) v, first + (int) w);
+            }
+        }
+    }
+
+    /**
+     * Starts from a clique of m + 1 users, then connects every other user to m distinct users, chosen by sampling
+     * the ends of the friendships so far; m is half of the degree.
+     */
+    private void preferentialAttachment(SplittableRandom random, FriendshipConsumer consumer) {
+        int m = (int) Math.max(1, Math.round(this.degree / 2));
+        int clique = Math.min(m + 1, this.users);
+        long total = (long) clique * (clique - 1) / 2 + (long) Math.max(this.users - clique, 0) * m;
+        if (2 * total > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many friendships for the Barabasi-Albert model!");
+        }
+        int[] ends = new int[(int) (2 * total)];
+        int size = 0;
+        for (int v = 1; v < clique; v++) {
+            for (int w = 0; w < v; w++) {
+                consumer.accept(v, w);
+                ends[size++] = v;
+                ends[size++] = w;
+            }
+        }
+
+        int[] targets = new int[m];
+        for (int v = clique; v < this.users; v++) {
+            int chosen = 0;
+            while (chosen < m) {
+                int target = ends[random.nextInt(size)];
+                boolean duplicate = false;
+                for (int i = 0; i < chosen && !duplicate; i++) {
+                    duplicate = targets[i] == target;
+                }
+                if (!duplicate) {
+                    targets[chosen++] = target;
+                }
+            }
+            for (int i = 0; i < m; i++) {
+                consumer.accept(v, targets[i]);
+                ends[size++] = v;
+                ends[size++] = targets[i];
+            }
+        }
+    }
+
+    /**
+     * @return Community of a user; community b holds the users in [b * n / k, (b + 1) * n / k).
+     */
+    private int community(int user) {
+        return (int) (((user + 1L) * this.communities - 1) / this.users);
+    }
+
+    /**
+     * Generates the friendships between communities over all the pairs, dropping the pairs inside a community,
+     * then the friendships inside every community.
+     */
+    private void blocks(SplittableRandom random, FriendshipConsumer consumer) {
+        if (this.users == 0) {
+            return;
+        }
+        double size = (double) this.users / this.communities;
+        double pOut = this.communities == 1 ? 0 : this.degree * this.mixing / (this.users - size);
+        double pIn = this.degree * (1 - this.mixing) / Math.max(size - 1, 1);
+
+        skip(random, 0, this.users, pOut, (user1, user2) -> {
+            if (this.community(user1) != this.community(user2)) {
+                consumer.accept(user1, user2);
+            }
+        });
+        for (int b = 0; b < this.communities; b++) {
+            int first = (int) ((long) b * this.users / this.communities);
+            int next = (int) ((long) (b + 1) * this.users / this.communities);
+            skip(random, first, next - first, pIn, consumer);
+        }
+    }
+
+    /**
+     * Generates the network into repositories, saving the entities in batches.
+     *
+     * @param userRepository       Repository of users.
+     * @param friendshipRepository Repository of friendships.
+     * @return Number of friendships.
+     * @throws RepositoryException If an entity couldn't be saved.
+     */
+    public long generate(AbstractRepository<UUID, User> userRepository,
+                         AbstractRepository<FriendshipKey, Friendship> friendshipRepository) throws RepositoryException {
+        UUID[] ids = new UUID[this.users];
+        List<User> userBatch = new ArrayList<>(Math.min(BATCH_SIZE, this.users));
+        for (int i = 0; i < this.users; i++) {
+            User user = this.user(i);
+            ids[i] = user.getId();
+            userBatch.add(user);
+            if (userBatch.size() == BATCH_SIZE) {
+                userRepository.saveAll(userBatch);
+                userBatch.clear();
+            }
+        }
+        userRepository.saveAll(userBatch);
+
+        List<Friendship> friendshipBatch = new ArrayList<>(BATCH_SIZE);
+        long count = this.friendships((user1, user2) -> {
+            friendshipBatch.add(Friendship.between(ids[user1], ids[user2], FRIENDSHIP_DATE));
+            if (friendshipBatch.size() == BATCH_SIZE) {
+                friendshipRepository.saveAll(friendshipBatch);
+                friendshipBatch.clear();
+            }
+        });
+        friendshipRepository.saveAll(friendshipBatch);
+        return count;
+    }
+
+    /**
+     * Writes the network to CSV files which the BulkImporter reads: users as firstName,lastName,email,id and
+     * friendships as user1,user2, by ID.
+     *
+     * @param usersFile       File of the users.
+     * @param friendshipsFile File of the friendships.
+     * @return Number of friendships.
+     * @throws IOException If a file couldn't be written.
+     */
+    public long write(Path usersFile, Path friendshipsFile) throws IOException {
+        String[] ids = new String[this.users];
+        try (BufferedWriter writer = Files.newBufferedWriter(usersFile, StandardCharsets.UTF_8)) {
+            writer.write("firstName,lastName,email,id");
+            writer.newLine();
+            for (int i = 0; i < this.users; i++) {
+                User user = this.user(i);
+                ids[i] = user.getId().toString();
+                writer.write(user.getFirstName() + "," + user.getLastName() + "," + user.getEmail() + "," + ids[i]);
+                writer.newLine();
+            }
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(friendshipsFile, StandardCharsets.UTF_8)) {
+            writer.write("user1,user2");
+            writer.newLine();
+            IOException[] failure = new IOException[1];
+            long count = this.friendships((user1, user2) -> {
+                if (failure[0] == null) {
+                    try {
+                        writer.write(ids[user1]);
+                        writer.write(',');
+                        writer.write(ids[user2]);
+                        writer.newLine();
+                    } catch (IOException iOE) {
+                        failure[0] = iOE;
+                    }
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            return count;
+        }
+    }
+}
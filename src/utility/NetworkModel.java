@@ -0,0 +1,21 @@
+package utility;
+
+/**
+ * Random graph model by which the NetworkGenerator connects the users.
+ */
+public enum NetworkModel {
+    /**
+     * Every pair of users are friends with the same probability; the degrees are close to the average.
+     */
+    ERDOS_RENYI,
+    /**
+     * Preferential attachment: every new user befriends existing users in proportion to their number of friends,
+     * so the degrees follow a power law, with a few users that have very many friends.
+     */
+    BARABASI_ALBERT,
+    /**
+     * Stochastic block model: the users are split into communities of equal size, and two users are friends with a
+     * higher probability if they are in the same community.
+     */
+    STOCHASTIC_BLOCK
+}
@@ -0,0 +1,271 @@
+package utility;
+
+import java.util.*;
+
+/**
+ * Inverted index of the trigrams of short texts, for type-ahead search.
+ * Every indexed item gets a document number, in insertion order, and keeps its fields in lower case; every trigram
+ * of a field has a posting list with the numbers of the items that contain it, kept as a sorted int array.
+ * A query of three or more characters walks the shortest posting list of its trigrams, seeks each of its documents
+ * in the other lists, and checks the documents found in all of them against the fields, until it has enough matches;
+ * shorter queries scan the items until enough are found.
+ * Document numbers aren't reused, so a new item is appended to the end of its posting lists. Removing an item leaves
+ * its number in the posting lists; once most of the numbers belong to removed items, the live items are renumbered
+ * in the same order and the posting lists rewritten without the removed ones.
+ * <p>
+ * A search stops as soon as it has limit prefix matches, or limit substring matches, so a common substring doesn't
+ * make it check every candidate. The price is that an item which starts with the query, but comes after the limit-th
+ * item which only contains it, may be left out in favour of substring matches.
+ *
+ * @param <ID> Type of the IDs of the items.
+ */
+public class TrigramIndex<ID> {
+    /**
+     * Smallest number of removed items for which the index is compacted.
+     */
+    private static final int MIN_COMPACTION = 1024;
+
+    private final List<ID> ids = new ArrayList<>();
+    private final List<String[]> fields = new ArrayList<>();
+    private final Map<ID, Integer> documents = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private int removed = 0;
+
+    /**
+     * Posting list of a trigram: sorted document numbers.
+     */
+    private static class Postings {
+        private int[] documents = new int[2];
+        private int size = 0;
+
+        private void add(int document) {
+            if (this.size == this.documents.length) {
+                this.documents = Arrays.copyOf(this.documents, this.size * 2);
+            }
+            this.documents[this.size++] = document;
+        }
+
+        /**
+         * Gallops from an index to the first document that isn't smaller than the given one.
+         *
+         * @return Index of that document, or size if there is none.
+         */
+        private int seek(int from, int document) {
+            int step = 1;
+            int high = from;
+            while (high < this.size && this.documents[high] < document) {
+                from = high + 1;
+                high += step;
+                step *= 2;
+            }
+            int i = Arrays.binarySearch(this.documents, from, Math.min(high, this.size), document);
+            return i >= 0 ? i : -i - 1;
+        }
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static long trigram(String text, int i) {
+        return (long) text.charAt(i) << 32 | (long) text.charAt(i + 1) << 16 | text.charAt(i + 2);
+    }
+
+    /**
+     * @return The distinct trigrams of the fields.
+     */
+    private static Set<Long> trigrams(String... texts) {
+        Set<Long> trigrams = new HashSet<>();
+        for (String text : texts) {
+            for (int i = 0; i + 3 <= text.length(); i++) {
+                trigrams.add(trigram(text, i));
+            }
+        }
+        return trigrams;
+    }
+
+    /**
+     * @return Number of indexed items.
+     */
+    public int size() {
+        return this.documents.size();
+    }
+
+    /**
+     * Indexes an item, replacing its previous fields if it's already indexed.
+     *
+     * @param id     ID of the item.
+     * @param fields Searchable fields of the item; null fields are skipped.
+     */
+    public void add(ID id, String... fields) {
+        this.remove(id);
+        String[] normalized = Arrays.stream(fields).filter(Objects::nonNull).map(TrigramIndex::normalize)
+                .toArray(String[]::new);
+        int document = this.ids.size();
+        this.ids.add(id);
+        this.fields.add(normalized);
+        this.documents.put(id, document);
+        for (long trigram : trigrams(normalized)) {
+            this.postings.computeIfAbsent(trigram, key -> new Postings()).add(document);
+        }
+    }
+
+    /**
+     * Removes an item from the index; nothing happens if it isn't indexed.
+     *
+     * @param id ID of the item.
+     */
+    public void remove(ID id) {
+        Integer document = this.documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        this.ids.set(document, null);
+        this.fields.set(document, null);
+        this.removed++;
+        if (this.removed >= MIN_COMPACTION && this.removed * 2 > this.ids.size()) {
+            this.compact();
+        }
+    }
+
+    /**
+     * Renumbers the live items in insertion order, dropping the slots of the removed ones, and rewrites the posting
+     * lists without them. The new numbers keep the order of the old ones, so the posting lists stay sorted.
+     */
+    private void compact() {
+        int[] renumbered = new int[this.ids.size()];
+        int next = 0;
+        for (int document = 0; document < this.ids.size(); document++) {
+            ID id = this.ids.get(document);
+            renumbered[document] = -1;
+            if (id != null) {
+                renumbered[document] = next;
+                this.ids.set(next, id);
+                this.fields.set(next, this.fields.get(document));
+                this.documents.put(id, next);
+                next++;
+            }
+        }
+        this.ids.subList(next, this.ids.size()).clear();
+        this.fields.subList(next, this.fields.size()).clear();
+        Iterator<Postings> lists = this.postings.values().iterator();
+        while (lists.hasNext()) {
+            Postings list = lists.next();
+            int kept = 0;
+            for (int i = 0; i < list.size; i++) {
+                int document = renumbered[list.documents[i]];
+                if (document >= 0) {
+                    list.documents[kept++] = document;
+                }
+            }
+            list.size = kept;
+            if (kept == 0) {
+                lists.remove();
+            }
+        }
+        this.removed = 0;
+    }
+
+    /**
+     * Searches for the items with a field that contains the query, ignoring the case.
+     * Items with a field that starts with the query come first; otherwise the items are in insertion order.
+     * The search ends once it has limit matches of either kind, so a prefix match found late may be left out.
+     *
+     * @param query Text to search for.
+     * @param limit Maximum number of results.
+     * @return IDs of the found items.
+     * @throws IllegalArgumentException If the query is null, or the limit isn't positive.
+     */
+    public List<ID> search(String query, int limit) throws IllegalArgumentException {
+        if (query == null) {
+            throw new IllegalArgumentException("Query cannot be null!");
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive!");
+        }
+        String text = normalize(query);
+        if (text.isEmpty()) {
+            return List.of();
+        }
+
+        List<ID> prefixes = new ArrayList<>();
+        List<ID> substrings = new ArrayList<>();
+        if (text.length() < 3) {
+            for (int document = 0; document < this.ids.size() && !full(prefixes, substrings, limit); document++) {
+                this.match(document, text, prefixes, substrings, limit);
+            }
+        } else {
+            this.matchCandidates(text, prefixes, substrings, limit);
+        }
+        for (int i = 0; prefixes.size() < limit && i < substrings.size(); i++) {
+            prefixes.add(substrings.get(i));
+        }
+        return prefixes;
+    }
+
+    private static boolean full(List<?> prefixes, List<?> substrings, int limit) {
+        return prefixes.size() >= limit || substrings.size() >= limit;
+    }
+
+    /**
+     * Matches the documents which contain all the trigrams of the text, in order, until there are enough matches.
+     * Every other posting list keeps a cursor, which only moves forward, so no list is read past the last candidate.
+     */
+    private void matchCandidates(String text, List<ID> prefixes, List<ID> substrings, int limit) {
+        List<Postings> lists = new ArrayList<>();
+        for (long trigram : trigrams(text)) {
+            Postings list = this.postings.get(trigram);
+            if (list == null) {
+                return;
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+
+        Postings shortest = lists.getFirst();
+        int[] cursors = new int[lists.size()];
+        for (int i = 0; i < shortest.size && !full(prefixes, substrings, limit); i++) {
+            int document = shortest.documents[i];
+            if (this.fields.get(document) != null && inAll(lists, cursors, document)) {
+                this.match(document, text, prefixes, substrings, limit);
+            }
+        }
+    }
+
+    /**
+     * Moves the cursors of the posting lists after the first one to the document.
+     *
+     * @return true if all of those lists contain the document.
+     */
+    private static boolean inAll(List<Postings> lists, int[] cursors, int document) {
+        for (int j = 1; j < lists.size(); j++) {
+            Postings list = lists.get(j);
+            cursors[j] = list.seek(cursors[j], document);
+            if (cursors[j] == list.size || list.documents[cursors[j]] != document) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the ID of a live document to the prefix or substring matches, if one of its fields contains the text.
+     */
+    private void match(int document, String text, List<ID> prefixes, List<ID> substrings, int limit) {
+        String[] texts = this.fields.get(document);
+        if (texts == null) {
+            return;
+        }
+        boolean contains = false;
+        for (String field : texts) {
+            if (field.startsWith(text)) {
+                prefixes.add(this.ids.get(document));
+                return;
+            }
+            contains |= field.contains(text);
+        }
+        if (contains && substrings.size() < limit) {
+            substrings.add(this.ids.get(document));
+        }
+    }
+}
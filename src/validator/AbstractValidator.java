@@ -3,10 +3,18 @@ package validator;
 import entity.Entity;
 import exception.ValidatorException;
 
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
 /**
  * Validator interface for implementing the rest of the validators.
  */
 public abstract class AbstractValidator<ID, E extends Entity<ID>> {
+    /**
+     * Smallest batch which is validated on several threads by the PARALLEL strategy.
+     */
+    public static final int PARALLEL_THRESHOLD = 1024;
 
     /**
      * Validates an entity of a specific type.
@@ -14,5 +22,50 @@ public abstract class AbstractValidator<ID, E extends Entity<ID>> {
     public abstract void validateQuick(E e) throws ValidatorException;
 
     public abstract void validateSlow(E e) throws ValidatorException;
-}
 
+    /**
+     * Validates an entity by the rules of validateSlow; validators without a faster check use validateSlow.
+     */
+    public void validateFast(E e) throws ValidatorException {
+        this.validateSlow(e);
+    }
+
+    /**
+     * Validates an entity by a strategy.
+     *
+     * @param e        Entity to validate.
+     * @param strategy Strategy by which the entity is validated.
+     * @throws ValidatorException If the entity isn't valid.
+     */
+    public void validate(E e, ValidateStrategy strategy) throws ValidatorException {
+        switch (strategy) {
+            case QUICK -> this.validateQuick(e);
+            case SLOW -> this.validateSlow(e);
+            case FAST, PARALLEL -> this.validateFast(e);
+        }
+    }
+
+    /**
+     * Validates a batch of entities by a strategy; with PARALLEL, a large batch is validated on the common pool.
+     *
+     * @param entities Entities to validate.
+     * @param strategy Strategy by which the entities are validated.
+     * @return Errors of the entities, in the same order; null for the valid entities.
+     */
+    public String[] validateAll(List<? extends E> entities, ValidateStrategy strategy) {
+        String[] errors = new String[entities.size()];
+        IntStream indices = IntStream.range(0, errors.length);
+        if (strategy == ValidateStrategy.PARALLEL && errors.length >= PARALLEL_THRESHOLD) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> {
+            try {
+                this.validate(entities.get(i), strategy);
+            } catch (ValidatorException vE) {
+                // an error without a message must still mark the entity as invalid
+                errors[i] = Objects.toString(vE.getMessage(), vE.getClass().getSimpleName());
+            }
+        });
+        return errors;
+    }
+}
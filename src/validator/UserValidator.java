@@ -166,6 +166,80 @@ public class UserValidator extends AbstractValidator<UUID, User> {
         }
     }
 
+    /**
+     * Checks a name by the rules of the slow validation, without allocating.
+     *
+     * @param name First or last name.
+     * @return true if the name is valid.
+     */
+    private static boolean isValidName(String name) {
+        if (name == null || name.length() < 3 || !Character.isUpperCase(name.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            char character = name.charAt(i);
+            if (character < 'a' || character > 'z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks an email by the rules of the slow validation, without allocating.
+     * Like String.split, the trailing empty parts are dropped: the email needs exactly one '@' before its trailing
+     * '@'s, and the domain, without its trailing '.'s, either contains a '.' or is made only of '.'s.
+     *
+     * @param email The email.
+     * @return true if the email is valid.
+     */
+    private static boolean isValidEmail(String email) {
+        if (email == null) {
+            return false;
+        }
+        int end = email.length();
+        while (end > 0 && email.charAt(end - 1) == '@') {
+            end--;
+        }
+        int at = -1;
+        for (int i = 0; i < end; i++) {
+            if (email.charAt(i) == '@') {
+                if (at >= 0) {
+                    return false;
+                }
+                at = i;
+            }
+        }
+        if (at < 0) {
+            return false;
+        }
+
+        int domainEnd = end;
+        while (domainEnd > at + 1 && email.charAt(domainEnd - 1) == '.') {
+            domainEnd--;
+        }
+        if (domainEnd == at + 1) {
+            return true;
+        }
+        for (int i = at + 1; i < domainEnd; i++) {
+            if (email.charAt(i) == '.') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Validates a user by the rules of validateSlow, scanning every field once.
+     * A valid user is checked without allocating; the errors of an invalid user are built by validateSlow.
+     */
+    @Override
+    public void validateFast(User user) throws ValidatorException {
+        if (!isValidName(user.getFirstName()) || !isValidName(user.getLastName()) || !isValidEmail(user.getEmail())) {
+            this.validateSlow(user);
+        }
+    }
+
     @Override
     public void validateQuick(User user) throws ValidatorException {
         ArrayList<String> errors = new ArrayList<>();
@@ -2,5 +2,13 @@ package validator;
 
 public enum ValidateStrategy {
     QUICK,
-    SLOW
+    SLOW,
+    /**
+     * The rules of SLOW, checked by scanning the fields once, without allocating for a valid entity.
+     */
+    FAST,
+    /**
+     * The rules of FAST, with large batches validated on several threads.
+     */
+    PARALLEL
 }
@@ -1,15 +1,24 @@
-import exception.RepositoryException;
-
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
 public class RunTests {
-    public static void main(String[] args) throws RepositoryException {
+    public static void main(String[] args) throws Exception {
         TestEntity.run();
         TestRepository.run();
+        TestConcurrentRepository.run();
+        TestLogRepository.run();
+        TestMappedRepository.run();
+        TestFriendshipRepository.run();
+        TestCodec.run();
         TestValidator.run();
         TestService.run();
+        TestBulkImporter.run();
+        TestSearch.run();
+        TestInstrumentedService.run();
+        TestEvents.run();
+        TestGenerator.run();
         TestCommunities.run();
+        TestConnectivity.run();
 
         System.out.println("All tests passed at: " + DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss").format(LocalDateTime.now()));
     }
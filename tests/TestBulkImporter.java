@@ -0,0 +1,154 @@
+import entity.Friendship;
+import entity.FriendshipKey;
+import entity.User;
+import exception.ServiceException;
+import repository.InMemoryRepository;
+import repository.NaturalKeys;
+import service.BulkImporter;
+import service.ImportProgress;
+import service.Service;
+import validator.AbstractValidator;
+import validator.ValidateStrategy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+public class TestBulkImporter {
+    private static Service newService() {
+        return new Service(new InMemoryRepository<UUID, User>(NaturalKeys.user()),
+                new InMemoryRepository<FriendshipKey, Friendship>(NaturalKeys.friendship()));
+    }
+
+    private static void testCsv(Path directory) throws IOException {
+        Service service = newService();
+        UUID knownId = UUID.randomUUID();
+        Path users = directory.resolve("users.csv");
+        Files.write(users, List.of(
+                "firstName,lastName,email,id",
+                "Ion,Remus,ion.remus@mail.com",
+                "\"Marius\",\"Chiriac\",marius.chiriac@mail.com," + knownId,
+                "",
+                "ion,Remus,bad.name@mail.com",
+                "Vlad,Remus",
+                "Ion,Remus,ion.remus@mail.com",
+                "Mariana,Chiriac,mariana.chiriac@mail.com"));
+        Path rejects = directory.resolve("users.rejects");
+
+        List<ImportProgress> progress = new ArrayList<>();
+        ImportProgress report = new BulkImporter(service, 2, 2)
+                .importUsers(users, rejects, ValidateStrategy.SLOW, progress::add);
+        assert (report.getImported() == 3);
+        assert (report.getRejected() == 3);
+        assert (report.getRecords() == 6);
+        assert (!progress.isEmpty());
+        assert (progress.getLast().getRecords() == 6);
+        assert (service.getUsers().size() == 3);
+        assert (service.getUser(knownId).getEmail().equals("marius.chiriac@mail.com"));
+
+        // rejects keep the line number and the original line, in file order
+        List<String> rejected = Files.readAllLines(rejects);
+        assert (rejected.size() == 3);
+        assert (rejected.get(0).startsWith("5\t"));
+        assert (rejected.get(0).endsWith("\tion,Remus,bad.name@mail.com"));
+        assert (rejected.get(1).startsWith("6\t"));
+        assert (rejected.get(2).startsWith("7\t"));
+
+        Path friendships = directory.resolve("friendships.csv");
+        Files.write(friendships, List.of(
+                "user1,user2",
+                "ion.remus@mail.com," + knownId,
+                knownId + ",ion.remus@mail.com",
+                "mariana.chiriac@mail.com,marius.chiriac@mail.com",
+                "nobody@mail.com,ion.remus@mail.com",
+                "not-an-id,ion.remus@mail.com",
+                UUID.randomUUID() + ",ion.remus@mail.com"));
+        report = new BulkImporter(service, 3, 1).importFriendships(friendships, directory.resolve("friendships.rejects"), null);
+        assert (report.getImported() == 2);
+        assert (report.getRejected() == 4);
+        assert (service.getFriendsOf(knownId).size() == 2);
+        assert (service.getNumberOfCommunities() == 1);
+    }
+
+    private static void testNdjson(Path directory) throws IOException {
+        Service service = newService();
+        Path users = directory.resolve("users.ndjson");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            lines.add("{\"firstName\": \"Name\", \"lastName\": \"Surname\", \"email\": \"user" + i + "@mail.com\"}");
+        }
+        lines.add("{\"firstName\": \"Ion\", \"lastName\": \"Remus\", \"email\": null}");
+        lines.add("{\"firstName\": \"Ion\", \"lastName\": \"Re\\u006dus\", \"email\": \"ion\\\"remus@mail.com\"");
+        lines.add("{\"firstName\": \"Ion\", \"lastName\": \"Re\\u006dus\", \"email\": \"ion.remus@mail.com\"}");
+        Files.write(users, lines);
+
+        ImportProgress report = new BulkImporter(service, 4, 64).importUsers(users, null, ValidateStrategy.SLOW, null);
+        assert (report.getImported() == 501);
+        assert (report.getRejected() == 2);
+        assert (service.getUsers().stream().anyMatch(user -> user.getLastName().equals("Remus")));
+
+        Path friendships = directory.resolve("friendships.jsonl");
+        lines.clear();
+        for (int i = 1; i < 500; i++) {
+            lines.add("{\"user1\": \"user" + (i - 1) + "@mail.com\", \"user2\": \"user" + i + "@mail.com\"}");
+        }
+        Files.write(friendships, lines);
+        report = new BulkImporter(service, 4, 64).importFriendships(friendships, null, null);
+        assert (report.getImported() == 499);
+        assert (service.getNumberOfCommunities() == 2);
+    }
+
+    /**
+     * Chunks large enough for validateAll to split them between threads keep the rejects in file order.
+     */
+    private static void testParallelValidation(Path directory) throws IOException {
+        Service service = newService();
+        Path users = directory.resolve("parallel.csv");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            lines.add(i % 100 == 0 ? "ion,Remus,invalid" + i + "@mail.com" : "Name,Surname,user" + i + "@mail.com");
+        }
+        Files.write(users, lines);
+        Path rejects = directory.resolve("parallel.rejects");
+
+        ImportProgress report = new BulkImporter(service, 2, AbstractValidator.PARALLEL_THRESHOLD * 2)
+                .importUsers(users, rejects, ValidateStrategy.PARALLEL, null);
+        assert (report.getImported() == 2970);
+        assert (report.getRejected() == 30);
+        List<String> rejected = Files.readAllLines(rejects);
+        for (int i = 0; i < rejected.size(); i++) {
+            assert (rejected.get(i).startsWith((i * 100 + 1) + "\t"));
+        }
+    }
+
+    private static void testMissingFile(Path directory) {
+        try {
+            new BulkImporter(newService()).importUsers(directory.resolve("missing.csv"), null, ValidateStrategy.SLOW, null);
+            assert false;
+        } catch (ServiceException sE) {
+            assert true;
+        }
+    }
+
+    public static void run() throws IOException {
+        Path directory = Files.createTempDirectory("bulk-import");
+        try {
+            testCsv(directory);
+            testNdjson(directory);
+            testParallelValidation(directory);
+            testMissingFile(directory);
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (Path path : files.toList()) {
+                    Files.delete(path);
+                }
+            }
+            Files.delete(directory);
+        }
+
+        System.out.println("Bulk import tests passed at: " + DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss").format(LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,102 @@
+import codec.*;
+import entity.Friendship;
+import entity.FriendshipKey;
+import entity.User;
+import repository.LogRepository;
+import repository.NaturalKeys;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+public class TestCodec {
+    private static <T> T roundTrip(Codec<T> codec, T value, ByteBuffer buffer) {
+        buffer.clear();
+        codec.encode(value, buffer);
+        assert (buffer.position() == codec.encodedSize(value));
+        buffer.flip();
+        T decoded = codec.decode(buffer);
+        assert (!buffer.hasRemaining());
+        return decoded;
+    }
+
+    private static void testRoundTrips(ByteBuffer buffer) {
+        UserCodec userCodec = new UserCodec();
+        User user = new User("Ion", "Remus", "ion.remus@mail.com");
+        User decodedUser = roundTrip(userCodec, user, buffer);
+        assert (decodedUser.equals(user) && decodedUser.getId().equals(user.getId()));
+
+        // null fields and characters outside ASCII, including a surrogate pair
+        User unusual = new User(null, "Ștefănescu", "😀@mail.com");
+        User decodedUnusual = roundTrip(userCodec, unusual, buffer);
+        assert (decodedUnusual.equals(unusual) && decodedUnusual.getFirstName() == null);
+
+        FriendshipCodec friendshipCodec = new FriendshipCodec();
+        Friendship friendship = new Friendship(UUID.randomUUID(), UUID.randomUUID());
+        Friendship decodedFriendship = roundTrip(friendshipCodec, friendship, buffer);
+        assert (decodedFriendship.getId().equals(friendship.getId()));
+        assert (decodedFriendship.getFriendshipDate().equals(friendship.getFriendshipDate()));
+        assert (friendshipCodec.encodedSize(friendship) == 44);
+
+        FriendshipKey pair = new FriendshipKey(UUID.randomUUID(), UUID.randomUUID());
+        assert (roundTrip(new UuidPairCodec(), pair, buffer).equals(pair));
+        assert (roundTrip(new SerializableCodec<>(), pair, buffer).equals(pair));
+
+    }
+
+    public static void run() throws Exception {
+        testRoundTrips(ByteBuffer.allocate(256));
+        testRoundTrips(ByteBuffer.allocateDirect(256));
+
+        // encoding into a buffer that is too small fails instead of writing a partial value
+        try {
+            new UserCodec().encode(new User("Ion", "Remus", "ion.remus@mail.com"), ByteBuffer.allocate(20));
+            assert false;
+        } catch (BufferOverflowException bOE) {
+            assert true;
+        }
+        SerializableCodec<User> serializableCodec = new SerializableCodec<>();
+        User serialized = new User("Ion", "Remus", "ion.remus@mail.com");
+        ByteBuffer small = ByteBuffer.allocate(20);
+        try {
+            serializableCodec.encode(serialized, small);
+            assert false;
+        } catch (BufferOverflowException bOE) {
+            assert (small.position() == 0);
+        }
+        // the form kept from the failed encode has the measured size
+        ByteBuffer large = ByteBuffer.allocate(serializableCodec.encodedSize(serialized));
+        serializableCodec.encode(serialized, large);
+        assert (!large.hasRemaining());
+
+        // a repository which logs with the binary codecs
+        Path directory = Files.createTempDirectory("codec-repository");
+        User user = new User("Ion", "Remus", "ion.remus@mail.com");
+        try (LogRepository<UUID, User> repository = new LogRepository<>(directory, NaturalKeys.user(),
+                new UuidCodec(), new UserCodec(), LogRepository.DEFAULT_COMPACTION_THRESHOLD)) {
+            repository.save(user);
+            repository.save(new User("Vlad", "Remus", "vlad.remus@mail.com"));
+            repository.delete(user.getId());
+            repository.save(user);
+            repository.snapshot();
+            repository.delete(user.getId());
+        }
+        try (LogRepository<UUID, User> repository = new LogRepository<>(directory, NaturalKeys.user(),
+                new UuidCodec(), new UserCodec(), LogRepository.DEFAULT_COMPACTION_THRESHOLD)) {
+            assert (repository.size() == 1);
+            assert (repository.getAll().iterator().next().getEmail().equals("vlad.remus@mail.com"));
+        }
+        try (var files = Files.list(directory)) {
+            for (Path path : files.toList()) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+
+        System.out.println("Codec tests passed at: " + DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss").format(LocalDateTime.now()));
+    }
+}
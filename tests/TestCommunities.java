@@ -1,20 +1,145 @@
 import entity.Friendship;
-import entity.Tuple;
+import entity.FriendshipKey;
 import entity.User;
+import exception.ServiceException;
 import repository.InMemoryRepository;
 import service.Service;
+import utility.ActivityStrategy;
+import utility.CompactGraph;
+import utility.Graph;
 import validator.ValidateStrategy;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 public class TestCommunities {
+    /**
+     * Diameter computed with a BFS from every member.
+     */
+    private static int bruteForceDiameter(List<UUID> community, HashMap<UUID, List<UUID>> friends) {
+        int diameter = 0;
+        for (UUID source : community) {
+            Map<UUID, Integer> distance = new HashMap<>();
+            ArrayDeque<UUID> queue = new ArrayDeque<>();
+            distance.put(source, 0);
+            queue.add(source);
+            while (!queue.isEmpty()) {
+                UUID current = queue.poll();
+                diameter = Math.max(diameter, distance.get(current));
+                for (UUID next : friends.get(current)) {
+                    if (!distance.containsKey(next)) {
+                        distance.put(next, distance.get(current) + 1);
+                        queue.add(next);
+                    }
+                }
+            }
+        }
+        return diameter;
+    }
+
+    private static void testActivityMetrics() {
+        Graph graph = new Graph();
+        Graph parallelGraph = new Graph(new ForkJoinPool(4));
+        for (long seed = 0; seed < 30; seed++) {
+            Random random = new Random(seed);
+            List<UUID> userIds = new ArrayList<>();
+            HashMap<UUID, List<UUID>> friends = new HashMap<>();
+            int size = 2 + random.nextInt(9);
+            for (int i = 0; i < size; i++) {
+                UUID id = new UUID(seed, i);
+                userIds.add(id);
+                friends.put(id, new ArrayList<>());
+            }
+            for (int i = 0; i < size + random.nextInt(2 * size); i++) {
+                UUID id1 = userIds.get(random.nextInt(size));
+                UUID id2 = userIds.get(random.nextInt(size));
+                if (!id1.equals(id2) && !friends.get(id1).contains(id2)) {
+                    friends.get(id1).add(id2);
+                    friends.get(id2).add(id1);
+                }
+            }
+
+            CompactGraph compactGraph = CompactGraph.of(userIds, friends);
+            List<List<UUID>> communities = graph.communities(userIds, friends);
+            List<int[]> compactCommunities = graph.communities(compactGraph);
+            for (int i = 0; i < communities.size(); i++) {
+                int[] component = compactCommunities.get(i);
+                assert (graph.diameter(compactGraph, component) == bruteForceDiameter(communities.get(i), friends));
+                assert (graph.longestPath(compactGraph, component, size) == graph.longestPath(communities.get(i), friends));
+                assert (parallelGraph.longestPath(compactGraph, component) == graph.longestPath(compactGraph, component));
+                // the subgraph of a community keeps its members and their friendships under local indexes
+                CompactGraph subgraph = compactGraph.subgraph(component);
+                assert (subgraph.toIds(graph.communities(subgraph).get(0)).equals(communities.get(i)));
+                for (int vertex = 0; vertex < component.length; vertex++) {
+                    for (int edge = subgraph.firstEdge(vertex); edge < subgraph.endEdge(vertex); edge++) {
+                        assert (friends.get(subgraph.vertex(vertex)).contains(subgraph.vertex(subgraph.target(edge))));
+                    }
+                    assert (subgraph.degree(vertex) == compactGraph.degree(component[vertex]));
+                }
+            }
+            for (ActivityStrategy strategy : ActivityStrategy.values()) {
+                assert (Arrays.equals(graph.activities(compactGraph, compactCommunities, strategy, size),
+                        parallelGraph.activities(compactGraph, compactCommunities, strategy, size)));
+            }
+
+            try {
+                graph.longestPath(compactGraph, compactCommunities.get(0), compactCommunities.get(0).length - 1);
+                assert false;
+            } catch (IllegalArgumentException iAE) {
+                assert true;
+            }
+        }
+    }
+
+    private static void testLongChain() {
+        // a chain this long overflows the thread stack of a recursive DFS
+        int length = 200_000;
+        List<UUID> userIds = new ArrayList<>();
+        HashMap<UUID, List<UUID>> friends = new HashMap<>();
+        for (int i = 0; i < length; i++) {
+            UUID id = new UUID(0, i);
+            userIds.add(id);
+            friends.put(id, new ArrayList<>());
+            if (i > 0) {
+                friends.get(id).add(userIds.get(i - 1));
+                friends.get(userIds.get(i - 1)).add(id);
+            }
+        }
+
+        Graph graph = new Graph();
+        List<UUID> community = graph.runDFS(userIds.get(0), new HashSet<>(), friends);
+        assert (community.equals(userIds));
+        assert (graph.communities(userIds, friends).size() == 1);
+        assert (graph.communities(CompactGraph.of(userIds, friends)).get(0).length == length);
+    }
+
+    /**
+     * A chain of 100 users is too long for the exact longest path, but not for the default metric.
+     */
+    private static void testLargeCommunity() {
+        Service service = new Service(new InMemoryRepository<>(), new InMemoryRepository<>());
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            service.addUser("Name", "Surname", "user" + i + "@mail.com", ValidateStrategy.QUICK);
+            ids.add(service.getUserByEmail("user" + i + "@mail.com").getId());
+            if (i > 0) {
+                service.addFriendship(ids.get(i - 1), ids.get(i));
+            }
+        }
+        assert (service.mostActiveCommunity().getFirst().size() == 100);
+        try {
+            service.mostActiveCommunity(ActivityStrategy.LONGEST_PATH);
+            assert false;
+        } catch (ServiceException sE) {
+            assert true;
+        }
+    }
+
     public static void run() {
         InMemoryRepository<UUID, User> userInMemoryRepository = new InMemoryRepository<>();
-        InMemoryRepository<Tuple<UUID, UUID>, Friendship> friendshipInMemoryRepository = new InMemoryRepository<>();
+        InMemoryRepository<FriendshipKey, Friendship> friendshipInMemoryRepository = new InMemoryRepository<>();
         Service service = new Service(userInMemoryRepository, friendshipInMemoryRepository);
 
         service.addUser("Ion", "Remus", "ion.remus@mail.com", ValidateStrategy.QUICK);
@@ -42,6 +167,37 @@ public class TestCommunities {
         List<List<UUID>> mostActiveCommunity = service.mostActiveCommunity();
         assert (mostActiveCommunity.size() == 1 && mostActiveCommunity.get(0).size() == 5);
 
+        // the compact graph variants must agree with the UUID ones
+        List<UUID> userIds = new ArrayList<>();
+        HashMap<UUID, List<UUID>> friends = new HashMap<>();
+        for (User user : users) {
+            userIds.add(user.getId());
+            List<UUID> friendIds = new ArrayList<>();
+            service.getFriendsOf(user.getId()).forEach(friend -> friendIds.add(friend.getId()));
+            friends.put(user.getId(), friendIds);
+        }
+        Graph graph = new Graph();
+        CompactGraph compactGraph = CompactGraph.of(userIds, friends);
+        List<List<UUID>> communities = graph.communities(userIds, friends);
+        List<int[]> compactCommunities = graph.communities(compactGraph);
+        assert (communities.size() == compactCommunities.size());
+        for (int i = 0; i < communities.size(); i++) {
+            assert (communities.get(i).equals(compactGraph.toIds(compactCommunities.get(i))));
+            assert (graph.longestPath(communities.get(i), friends) == graph.longestPath(compactGraph, compactCommunities.get(i)));
+        }
+        List<List<UUID>> mostActiveByDiameter = service.mostActiveCommunity(ActivityStrategy.DIAMETER);
+        assert (mostActiveByDiameter.size() == 1 && mostActiveByDiameter.get(0).size() == 5);
+
+        Service parallelService = new Service(userInMemoryRepository, friendshipInMemoryRepository, 4);
+        assert (parallelService.getNumberOfCommunities() == numberOfCommunities);
+        List<List<UUID>> parallelMostActive = parallelService.mostActiveCommunity();
+        assert (parallelMostActive.size() == 1);
+        assert (new HashSet<>(parallelMostActive.get(0)).equals(new HashSet<>(mostActiveCommunity.get(0))));
+
+        testActivityMetrics();
+        testLongChain();
+        testLargeCommunity();
+
         System.out.println("Communities tests passed at: " + DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss").format(LocalDateTime.now()));
     }
 }
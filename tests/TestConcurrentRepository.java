@@ -0,0 +1,195 @@
+import entity.User;
+import exception.RepositoryException;
+import repository.AbstractRepository;
+import repository.ConcurrentRepository;
+import repository.NaturalKeys;
+import repository.Page;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestConcurrentRepository {
+    private static final int THREADS = 8;
+
+    /**
+     * Runs the same task on all threads at once.
+     *
+     * @return Number of tasks which didn't throw a RepositoryException.
+     */
+    private static int runConcurrently(ExecutorService executor, Runnable task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger successes = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    task.run();
+                    successes.incrementAndGet();
+                } catch (RepositoryException ignored) {
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return successes.get();
+    }
+
+    public static void run() throws Exception {
+        AbstractRepository<UUID, User> userRepository = new ConcurrentRepository<>(NaturalKeys.user());
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        // same exception semantics as the in memory repository
+        try {
+            userRepository.save(null);
+            assert false;
+        } catch (IllegalArgumentException exception) {
+            assert true;
+        }
+        try {
+            userRepository.getOne(UUID.randomUUID());
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        }
+        try {
+            userRepository.update(new User("Ion", "Remus", "ion.remus@mail.com"));
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        }
+
+        // only one of the threads saving the same content wins
+        for (int round = 0; round < 50; round++) {
+            int current = round;
+            int saved = runConcurrently(executor, () ->
+                    userRepository.save(new User("Ion", "Remus", "ion.remus" + current + "@mail.com")));
+            assert (saved == 1);
+        }
+        assert (userRepository.size() == 50);
+
+        // only one of the threads deleting the same entity wins
+        for (User user : new ArrayList<>(toList(userRepository.getAll()))) {
+            int deleted = runConcurrently(executor, () -> userRepository.delete(user.getId()));
+            assert (deleted == 1);
+        }
+        assert (userRepository.isEmpty());
+
+        // distinct entities saved from all threads are all stored
+        runConcurrently(executor, () -> {
+            for (int i = 0; i < 1000; i++) {
+                userRepository.save(new User("Ion", "Remus", UUID.randomUUID() + "@mail.com"));
+            }
+        });
+        assert (userRepository.size() == THREADS * 1000);
+        assert (toList(userRepository.getAll()).size() == THREADS * 1000);
+
+        // the default batch operations undo the part of a batch that was done before a failure
+        User user1 = new User("Vlad", "Remus", "vlad.remus@mail.com");
+        User user2 = new User("Dan", "Remus", "dan.remus@mail.com");
+        int size = userRepository.size();
+        try {
+            userRepository.saveAll(List.of(user1, user2, new User("Dan", "Remus", "dan.remus@mail.com")));
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        }
+        assert (userRepository.size() == size);
+        userRepository.saveAll(List.of(user1, user2));
+        try {
+            userRepository.deleteAll(List.of(user1.getId(), UUID.randomUUID()));
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        }
+        assert (userRepository.deleteAll(List.of(user2.getId(), user1.getId())).equals(List.of(user2, user1)));
+        assert (userRepository.size() == size);
+
+        // an update can't take the natural key of another entity
+        userRepository.saveAll(List.of(user1, user2));
+        try {
+            userRepository.update(new User(user1.getId(), "Dan", "Remus", "dan.remus@mail.com"));
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        }
+        assert (userRepository.getOne(user1.getId()) == user1);
+        userRepository.delete(user2.getId());
+        try {
+            userRepository.save(new User("Vlad", "Remus", "vlad.remus@mail.com"));
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        }
+        userRepository.delete(user1.getId());
+
+        // concurrent updates and deletes of the same entity leave no natural key behind
+        for (int round = 0; round < 50; round++) {
+            User user = new User("Ion", "Remus", "ion.remus@mail.com");
+            userRepository.save(user);
+            AtomicInteger turn = new AtomicInteger();
+            runConcurrently(executor, () -> {
+                if (turn.getAndIncrement() == 0) {
+                    userRepository.delete(user.getId());
+                } else {
+                    userRepository.update(new User(user.getId(), "Ion", "Remus", "ion" + turn.get() + "@mail.com"));
+                }
+            });
+            assert (userRepository.size() == size);
+            for (int i = 0; i <= THREADS; i++) {
+                User saved = new User("Ion", "Remus", "ion" + i + "@mail.com");
+                userRepository.save(saved);
+                userRepository.delete(saved.getId());
+            }
+        }
+
+        // every update and delete kept the saved order in step with the entities
+        assert (toList(userRepository.getAll()).size() == userRepository.size());
+
+        // the pages list every entity once, in the order they were saved, even if entities are removed between pages
+        AbstractRepository<UUID, User> pagedRepository = new ConcurrentRepository<>(NaturalKeys.user());
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 95; i++) {
+            users.add(new User("Name", "Surname", "user" + i + "@mail.com"));
+        }
+        pagedRepository.saveAll(users);
+        pagedRepository.delete(users.get(3).getId());
+        List<User> listed = new ArrayList<>();
+        Page<User> page = pagedRepository.getPage(null, 10);
+        int pages = 1;
+        listed.addAll(page.getItems());
+        pagedRepository.delete(users.get(9).getId());
+        pagedRepository.delete(users.get(50).getId());
+        while (page.hasNext()) {
+            page = pagedRepository.getPage(page.getNextToken(), 10);
+            assert (page.getItems().size() <= 10);
+            listed.addAll(page.getItems());
+            pages++;
+        }
+        Set<User> distinct = new HashSet<>(listed);
+        assert (distinct.size() == listed.size());
+        assert (listed.size() == 93);
+        assert (!distinct.contains(users.get(3)) && !distinct.contains(users.get(50)));
+        assert (pages == 10);
+        assert (toList(pagedRepository.getAll()).equals(listed.stream().filter(user -> user != users.get(9)).toList()));
+
+        executor.shutdown();
+        System.out.println("Concurrent repository tests passed at: " + DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss").format(LocalDateTime.now()));
+    }
+
+    private static List<User> toList(Iterable<User> users) {
+        List<User> list = new ArrayList<>();
+        users.forEach(list::add);
+        return list;
+    }
+}
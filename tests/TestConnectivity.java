@@ -0,0 +1,146 @@
+import entity.Friendship;
+import entity.FriendshipKey;
+import entity.User;
+import repository.InMemoryRepository;
+import repository.NaturalKeys;
+import service.Service;
+import utility.ConnectedComponents;
+import utility.Graph;
+import validator.ValidateStrategy;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+public class TestConnectivity {
+    private static HashMap<UUID, List<UUID>> toFriendMap(Map<UUID, Set<UUID>> adjacency) {
+        HashMap<UUID, List<UUID>> friends = new HashMap<>();
+        adjacency.forEach((id, friendIds) -> friends.put(id, new ArrayList<>(friendIds)));
+        return friends;
+    }
+
+    /**
+     * Checks that the components agree with a full DFS over the network.
+     */
+    private static void assertSameComponents(ConnectedComponents components, Map<UUID, Set<UUID>> adjacency) {
+        List<List<UUID>> communities = new Graph().communities(adjacency.keySet(), toFriendMap(adjacency));
+        assert (components.count() == communities.size());
+
+        Set<Integer> labels = new HashSet<>();
+        for (List<UUID> community : communities) {
+            int label = components.componentOf(community.get(0));
+            assert (labels.add(label));
+            assert (components.sizeOf(community.get(0)) == community.size());
+            for (UUID id : community) {
+                assert (components.componentOf(id) == label);
+            }
+        }
+    }
+
+    private static void testRandomOperations(long seed) {
+        Random random = new Random(seed);
+        Map<UUID, Set<UUID>> adjacency = new HashMap<>();
+        List<UUID> vertices = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            UUID id = new UUID(seed, i);
+            vertices.add(id);
+            adjacency.put(id, new HashSet<>());
+        }
+        for (int i = 0; i < 20; i++) {
+            UUID id1 = vertices.get(random.nextInt(vertices.size()));
+            UUID id2 = vertices.get(random.nextInt(vertices.size()));
+            if (!id1.equals(id2)) {
+                adjacency.get(id1).add(id2);
+                adjacency.get(id2).add(id1);
+            }
+        }
+
+        ConnectedComponents components = new ConnectedComponents(adjacency);
+        assertSameComponents(components, adjacency);
+
+        int nextVertex = vertices.size();
+        for (int operation = 0; operation < 400; operation++) {
+            int choice = random.nextInt(10);
+            if (choice < 5 && vertices.size() > 1) {
+                // add an edge
+                UUID id1 = vertices.get(random.nextInt(vertices.size()));
+                UUID id2 = vertices.get(random.nextInt(vertices.size()));
+                if (!id1.equals(id2) && adjacency.get(id1).add(id2)) {
+                    adjacency.get(id2).add(id1);
+                    components.addEdge(id1, id2);
+                }
+            } else if (choice < 8) {
+                // remove an edge
+                UUID id1 = vertices.get(random.nextInt(vertices.size()));
+                if (!adjacency.get(id1).isEmpty()) {
+                    UUID id2 = adjacency.get(id1).iterator().next();
+                    adjacency.get(id1).remove(id2);
+                    adjacency.get(id2).remove(id1);
+                    components.removeEdge(id1, id2);
+                }
+            } else if (choice == 8) {
+                // add a vertex
+                UUID id = new UUID(seed, nextVertex++);
+                vertices.add(id);
+                adjacency.put(id, new HashSet<>());
+                components.addVertex(id);
+            } else if (vertices.size() > 1) {
+                // remove a vertex with all its edges
+                UUID id = vertices.remove(random.nextInt(vertices.size()));
+                for (UUID friendId : new ArrayList<>(adjacency.get(id))) {
+                    adjacency.get(id).remove(friendId);
+                    adjacency.get(friendId).remove(id);
+                    components.removeEdge(id, friendId);
+                }
+                adjacency.remove(id);
+                components.removeVertex(id);
+            }
+            assertSameComponents(components, adjacency);
+        }
+    }
+
+    private static void testService() {
+        Service service = new Service(new InMemoryRepository<UUID, User>(NaturalKeys.user()),
+                new InMemoryRepository<FriendshipKey, Friendship>(NaturalKeys.friendship()));
+        Random random = new Random(7);
+        for (int i = 0; i < 20; i++) {
+            service.addUser("Name", "Surname", "user" + i + "@mail.com", ValidateStrategy.QUICK);
+        }
+
+        for (int operation = 0; operation < 200; operation++) {
+            List<User> users = service.getUsers();
+            User user1 = users.get(random.nextInt(users.size()));
+            User user2 = users.get(random.nextInt(users.size()));
+            int choice = random.nextInt(10);
+            if (choice < 6 && !user1.equals(user2)) {
+                try {
+                    service.addFriendship(user1.getId(), user2.getId());
+                } catch (RuntimeException ignored) {
+                    service.removeFriendship(user1.getId(), user2.getId());
+                }
+            } else if (choice < 8) {
+                service.removeUser(user1.getId());
+                service.addUser("Name", "Surname", "user" + (100 + operation) + "@mail.com", ValidateStrategy.QUICK);
+            }
+
+            List<UUID> userIds = new ArrayList<>();
+            HashMap<UUID, List<UUID>> friends = new HashMap<>();
+            for (User user : service.getUsers()) {
+                userIds.add(user.getId());
+                List<UUID> friendIds = new ArrayList<>();
+                service.getFriendsOf(user.getId()).forEach(friend -> friendIds.add(friend.getId()));
+                friends.put(user.getId(), friendIds);
+            }
+            assert (service.getNumberOfCommunities() == new Graph().communities(userIds, friends).size());
+        }
+    }
+
+    public static void run() {
+        for (long seed = 0; seed < 20; seed++) {
+            testRandomOperations(seed);
+        }
+        testService();
+
+        System.out.println("Connectivity tests passed at: " + DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss").format(LocalDateTime.now()));
+    }
+}
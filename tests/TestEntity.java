@@ -1,4 +1,5 @@
 import entity.Friendship;
+import entity.FriendshipKey;
 import entity.User;
 
 import java.time.LocalDateTime;
@@ -38,8 +39,10 @@ public class TestEntity {
         // Testing friendship
         Friendship friendship = new Friendship(user1.getId(), user2.getId());
         assert (friendship.getFriendshipDate().getHour() == LocalDateTime.now().getHour());
-        assert (friendship.getId().getLeft() == user1.getId());
-        assert (friendship.getId().getRight() == user2.getId());
+        assert (friendship.getId().getLeft().equals(user1.getId()));
+        assert (friendship.getId().getRight().equals(user2.getId()));
+        assert (friendship.getId().hashCode() == new FriendshipKey(user1.getId(), user2.getId()).hashCode());
+        assert (!friendship.getId().equals(new FriendshipKey(user2.getId(), user1.getId())));
 
         Friendship newFriendship = new Friendship(user2.getId(), user1.getId());
         newFriendship.setId(friendship.getId());
@@ -0,0 +1,103 @@
+import entity.Friendship;
+import entity.FriendshipKey;
+import entity.User;
+import exception.ServiceException;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import metrics.CommunityActivityEvent;
+import metrics.GraphPhaseEvent;
+import metrics.ServiceOperationEvent;
+import repository.InMemoryRepository;
+import repository.NaturalKeys;
+import service.InstrumentedService;
+import service.Service;
+import utility.ActivityStrategy;
+import validator.ValidateStrategy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+public class TestEvents {
+    /**
+     * Records a search for the most active community, in a network with a path of three users and a lonely user.
+     */
+    private static List<RecordedEvent> record() throws IOException {
+        Service delegate = new Service(new InMemoryRepository<UUID, User>(NaturalKeys.user()),
+                new InMemoryRepository<FriendshipKey, Friendship>(NaturalKeys.friendship()));
+        InstrumentedService<UUID> service = new InstrumentedService<>(delegate);
+        for (String name : List.of("ana", "ion", "dan", "vlad")) {
+            service.addUser("Name", "Surname", name + "@mail.com", ValidateStrategy.SLOW);
+        }
+        UUID ana = service.getUserByEmail("ana@mail.com").getId();
+        UUID ion = service.getUserByEmail("ion@mail.com").getId();
+        UUID dan = service.getUserByEmail("dan@mail.com").getId();
+
+        Path file = Files.createTempFile("events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(ServiceOperationEvent.class);
+            recording.enable(GraphPhaseEvent.class);
+            recording.enable(CommunityActivityEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+
+            service.addFriendship(ana, ion);
+            service.addFriendship(ion, dan);
+            try {
+                service.getUser(UUID.randomUUID());
+                assert false;
+            } catch (ServiceException sE) {
+                assert true;
+            }
+            assert (service.mostActiveCommunity(ActivityStrategy.DIAMETER).getFirst().size() == 3);
+
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).toList();
+    }
+
+    private static void testEvents() throws IOException {
+        List<RecordedEvent> events = record();
+
+        List<RecordedEvent> operations = named(events, "reteadesocializare.ServiceOperation");
+        assert (operations.size() == 4);
+        assert (operations.stream().filter(event -> event.getBoolean("failed"))
+                .allMatch(event -> event.getString("operation").equals("getUser")));
+        assert (operations.stream().filter(event -> event.getBoolean("failed")).count() == 1);
+
+        List<RecordedEvent> phases = named(events, "reteadesocializare.GraphPhase");
+        assert (phases.stream().map(event -> event.getString("phase")).toList()
+                .equals(List.of("buildGraph", "communities", "activities")));
+        for (RecordedEvent phase : phases) {
+            assert (phase.getString("strategy").equals("DIAMETER"));
+            assert (phase.getInt("vertices") == 4);
+            assert (phase.getInt("friendships") == 2);
+        }
+        assert (phases.get(0).getInt("communities") == 0);
+        assert (phases.get(1).getInt("communities") == 2);
+        assert (phases.get(1).getInt("largestCommunity") == 3);
+
+        List<RecordedEvent> communities = named(events, "reteadesocializare.CommunityActivity");
+        assert (communities.size() == 2);
+        RecordedEvent largest = communities.stream().filter(event -> event.getInt("members") == 3).findFirst().orElseThrow();
+        assert (largest.getInt("friendships") == 2);
+        assert (largest.getInt("activity") == 2);
+    }
+
+    public static void run() throws IOException {
+        testEvents();
+
+        System.out.println("Flight recorder event tests passed at: " + DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss").format(LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,124 @@
+import entity.Friendship;
+import entity.FriendshipKey;
+import exception.RepositoryException;
+import repository.FriendshipRepository;
+import repository.InMemoryFriendshipRepository;
+import repository.InMemoryRepository;
+import repository.Page;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+public class TestFriendshipRepository {
+    public static void run() {
+        InMemoryFriendshipRepository repository = new InMemoryFriendshipRepository();
+        UUID id1 = UUID.randomUUID();
+        UUID id2 = UUID.randomUUID();
+        Friendship friendship = Friendship.between(id1, id2);
+        repository.save(friendship);
+
+        // lookups from the bits of the IDs, without a key object
+        FriendshipKey key = Friendship.key(id2, id1);
+        assert (repository.getOne(key.getLeftHigh(), key.getLeftLow(), key.getRightHigh(), key.getRightLow()) == friendship);
+        // the users can be given in any order, and so can the halves of IDs which share their high bits
+        assert (repository.getOne(key.getRightHigh(), key.getRightLow(), key.getLeftHigh(), key.getLeftLow()) == friendship);
+        assert (repository.getOne(key) == friendship);
+        assert (repository.getOne(key.getLeftHigh(), key.getLeftLow(), key.getLeftHigh(), key.getRightLow()) == null);
+        UUID sameHigh1 = new UUID(7, 5);
+        UUID sameHigh2 = new UUID(7, -3);
+        Friendship sameHigh = Friendship.between(sameHigh1, sameHigh2);
+        repository.save(sameHigh);
+        assert (repository.getOne(7, 5, 7, -3) == sameHigh);
+        assert (repository.getOne(7, -3, 7, 5) == sameHigh);
+        assert (repository.delete(7, 5, 7, -3) == sameHigh);
+        assert (repository.delete(7, -3, 7, 5) == null);
+        assert (repository.size() == 1);
+
+        try {
+            repository.save(Friendship.between(id2, id1));
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        }
+        try {
+            repository.getOne(new FriendshipKey(key.getRight(), key.getLeft()));
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        }
+
+        // random saves and deletes agree with a HashMap, which checks that deletes don't break the probe sequences
+        Random random = new Random(16);
+        List<UUID> users = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            users.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        Map<FriendshipKey, Friendship> expected = new HashMap<>();
+        expected.put(friendship.getId(), friendship);
+        for (int i = 0; i < 20000; i++) {
+            UUID user1 = users.get(random.nextInt(users.size()));
+            UUID user2 = users.get(random.nextInt(users.size()));
+            FriendshipKey current = Friendship.key(user1, user2);
+            if (expected.containsKey(current)) {
+                assert (repository.delete(current) == expected.remove(current));
+            } else {
+                Friendship added = Friendship.between(user1, user2);
+                repository.save(added);
+                expected.put(current, added);
+            }
+        }
+        assert (repository.size() == expected.size());
+        for (Map.Entry<FriendshipKey, Friendship> entry : expected.entrySet()) {
+            assert (repository.getOne(entry.getKey()) == entry.getValue());
+        }
+        Set<FriendshipKey> listed = new HashSet<>();
+        repository.getAll().forEach(stored -> listed.add(stored.getId()));
+        assert (listed.equals(expected.keySet()));
+
+        repository.deleteAll(new ArrayList<>(expected.keySet()));
+        assert (repository.isEmpty());
+
+        // Testing the pages, which list every friendship once even if friendships are removed between pages
+        InMemoryFriendshipRepository pagedRepository = new InMemoryFriendshipRepository();
+        List<Friendship> friendships = new ArrayList<>();
+        for (int i = 1; i < users.size(); i++) {
+            friendships.add(Friendship.between(users.get(0), users.get(i)));
+        }
+        pagedRepository.saveAll(friendships);
+        Set<FriendshipKey> paged = new HashSet<>();
+        Page<Friendship> page = pagedRepository.getPage(null, 10);
+        page.getItems().forEach(item -> paged.add(item.getId()));
+        // deletes of friendships not listed yet and of a listed one, which leave the other friendships in place
+        Set<FriendshipKey> removed = new HashSet<>();
+        for (Friendship item : friendships) {
+            if (!paged.contains(item.getId()) && removed.size() < 5) {
+                pagedRepository.delete(item.getId());
+                removed.add(item.getId());
+            }
+        }
+        pagedRepository.delete(page.getItems().get(0).getId());
+        while (page.hasNext()) {
+            page = pagedRepository.getPage(page.getNextToken(), 10);
+            assert (page.getItems().size() <= 10);
+            for (Friendship item : page.getItems()) {
+                assert (paged.add(item.getId()));
+                assert (!removed.contains(item.getId()));
+            }
+        }
+        assert (paged.size() == friendships.size() - removed.size());
+        assert (pagedRepository.size() == friendships.size() - removed.size() - 1);
+
+        // any repository of friendships gets the lookups from the bits of the IDs through a view
+        assert (FriendshipRepository.of(repository) == repository);
+        FriendshipRepository view = FriendshipRepository.of(new InMemoryRepository<>());
+        view.save(friendship);
+        assert (view.getOne(key.getRightHigh(), key.getRightLow(), key.getLeftHigh(), key.getLeftLow()) == friendship);
+        assert (view.getOne(7, 5, 7, -3) == null);
+        assert (view.delete(key.getRightHigh(), key.getRightLow(), key.getLeftHigh(), key.getLeftLow()) == friendship);
+        assert (view.delete(key.getLeftHigh(), key.getLeftLow(), key.getRightHigh(), key.getRightLow()) == null);
+        assert (view.isEmpty());
+
+        System.out.println("Friendship repository tests passed at: " + DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss").format(LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,131 @@
+import entity.Friendship;
+import entity.FriendshipKey;
+import entity.User;
+import repository.InMemoryFriendshipRepository;
+import repository.InMemoryRepository;
+import repository.NaturalKeys;
+import service.BulkImporter;
+import service.Service;
+import utility.NetworkGenerator;
+import utility.NetworkModel;
+import validator.UserValidator;
+import validator.ValidateStrategy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+public class TestGenerator {
+    private static final int USERS = 2_000;
+    private static final int DEGREE = 10;
+
+    /**
+     * @return The friendships of a generator, as user numbers packed in longs, in generation order.
+     */
+    private static List<Long> friendshipsOf(NetworkGenerator generator) {
+        List<Long> friendships = new ArrayList<>();
+        generator.friendships((user1, user2) -> friendships.add((long) Math.max(user1, user2) << 32 | Math.min(user1, user2)));
+        return friendships;
+    }
+
+    /**
+     * Checks that every model is deterministic, has the requested density, and has no duplicates or loops.
+     */
+    private static void testModels() {
+        Map<NetworkModel, int[]> degrees = new EnumMap<>(NetworkModel.class);
+        for (NetworkModel model : NetworkModel.values()) {
+            List<Long> friendships = friendshipsOf(new NetworkGenerator(model, USERS, DEGREE, 3));
+            assert (friendships.equals(friendshipsOf(new NetworkGenerator(model, USERS, DEGREE, 3))));
+            assert (!friendships.equals(friendshipsOf(new NetworkGenerator(model, USERS, DEGREE, 4))));
+            assert (new HashSet<>(friendships).size() == friendships.size());
+
+            int[] degree = new int[USERS];
+            for (long friendship : friendships) {
+                int user1 = (int) (friendship >>> 32);
+                int user2 = (int) friendship;
+                assert (user1 != user2);
+                degree[user1]++;
+                degree[user2]++;
+            }
+            double average = 2.0 * friendships.size() / USERS;
+            assert (Math.abs(average - DEGREE) < 0.15 * DEGREE);
+            degrees.put(model, degree);
+        }
+
+        // preferential attachment gives a few users many more friends than uniform attachment
+        int maxRandom = Arrays.stream(degrees.get(NetworkModel.ERDOS_RENYI)).max().orElseThrow();
+        int maxPowerLaw = Arrays.stream(degrees.get(NetworkModel.BARABASI_ALBERT)).max().orElseThrow();
+        assert (maxPowerLaw > 3 * maxRandom);
+
+        // most of the friendships of the block model are inside the communities
+        int inside = 0;
+        List<Long> blocks = friendshipsOf(new NetworkGenerator(NetworkModel.STOCHASTIC_BLOCK, USERS, DEGREE, 20, 0.1, 3));
+        for (long friendship : blocks) {
+            if ((int) (friendship >>> 32) / (USERS / 20) == (int) friendship / (USERS / 20)) {
+                inside++;
+            }
+        }
+        assert (Math.abs((double) inside / blocks.size() - 0.9) < 0.05);
+
+        try {
+            new NetworkGenerator(NetworkModel.STOCHASTIC_BLOCK, 10, 4, 20, 0.1, 3);
+            assert false;
+        } catch (IllegalArgumentException iAE) {
+            assert true;
+        }
+    }
+
+    private static void testRepositories() {
+        NetworkGenerator generator = new NetworkGenerator(NetworkModel.STOCHASTIC_BLOCK, USERS, DEGREE, 3);
+        InMemoryRepository<UUID, User> users = new InMemoryRepository<>(NaturalKeys.user());
+        InMemoryFriendshipRepository friendships = new InMemoryFriendshipRepository();
+        long count = generator.generate(users, friendships);
+        assert (users.size() == USERS);
+        assert (friendships.size() == count);
+        assert (users.getOne(generator.id(7)).equals(generator.user(7)));
+
+        UserValidator validator = new UserValidator();
+        for (User user : users.getAll()) {
+            validator.validateSlow(user);
+        }
+        Service service = new Service(users, friendships);
+        assert (service.getFriendships().size() == count);
+        assert (service.getNumberOfCommunities() >= 1);
+    }
+
+    private static void testFiles(Path directory) throws IOException {
+        NetworkGenerator generator = new NetworkGenerator(NetworkModel.BARABASI_ALBERT, 500, 6, 3);
+        Path users = directory.resolve("users.csv");
+        Path friendships = directory.resolve("friendships.csv");
+        long count = generator.write(users, friendships);
+
+        Service service = new Service(new InMemoryRepository<UUID, User>(NaturalKeys.user()),
+                new InMemoryRepository<FriendshipKey, Friendship>(NaturalKeys.friendship()));
+        BulkImporter importer = new BulkImporter(service);
+        assert (importer.importUsers(users, null, ValidateStrategy.FAST, null).getImported() == 500);
+        assert (importer.importFriendships(friendships, null, null).getImported() == count);
+        assert (service.getNumberOfCommunities() == 1);
+    }
+
+    public static void run() throws IOException {
+        testModels();
+        testRepositories();
+
+        Path directory = Files.createTempDirectory("generator");
+        try {
+            testFiles(directory);
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (Path path : files.toList()) {
+                    Files.delete(path);
+                }
+            }
+            Files.delete(directory);
+        }
+
+        System.out.println("Generator tests passed at: " + DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss").format(LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,156 @@
+import entity.Friendship;
+import entity.FriendshipKey;
+import entity.User;
+import exception.ServiceException;
+import metrics.LatencyHistogram;
+import metrics.OperationSnapshot;
+import repository.InMemoryRepository;
+import repository.NaturalKeys;
+import service.BulkImporter;
+import service.ImportProgress;
+import service.InstrumentedService;
+import service.Service;
+import validator.ValidateStrategy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+public class TestInstrumentedService {
+    private static OperationSnapshot find(InstrumentedService<UUID> service, String name) {
+        return service.snapshot().stream().filter(snapshot -> snapshot.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    private static void testCounts() {
+        Service delegate = new Service(new InMemoryRepository<UUID, User>(NaturalKeys.user()),
+                new InMemoryRepository<FriendshipKey, Friendship>(NaturalKeys.friendship()));
+        InstrumentedService<UUID> service = new InstrumentedService<>(delegate);
+
+        service.addUser("Ion", "Remus", "ion.remus@mail.com", ValidateStrategy.SLOW);
+        service.addUser("Marius", "Chiriac", "marius.chiriac@mail.com", ValidateStrategy.SLOW);
+        try {
+            service.addUser("Ion", "Remus", "ion.remus@mail.com", ValidateStrategy.SLOW);
+            assert false;
+        } catch (ServiceException sE) {
+            assert true;
+        }
+        UUID id = service.getUserByEmail("ion.remus@mail.com").getId();
+        try {
+            service.getUser(UUID.randomUUID());
+            assert false;
+        } catch (ServiceException sE) {
+            assert true;
+        }
+        assert (service.getUsers().size() == 2);
+        assert (service.removeUser(id).getId().equals(id));
+
+        OperationSnapshot addUser = find(service, "addUser");
+        assert (addUser.getCalls() == 3);
+        assert (addUser.getErrors() == 1);
+        assert (addUser.getMaxNanos() > 0);
+        assert (find(service, "getUser").getErrors() == 1);
+        assert (find(service, "getUserByEmail").getCalls() == 1);
+        assert (find(service, "getUsers()").getCalls() == 1);
+        assert (find(service, "removeUser").getCalls() == 1);
+        assert (find(service, "getFriendsOf").getCalls() == 0);
+        assert (service.snapshot().getFirst().getName().equals("addUser"));
+    }
+
+    /**
+     * Imports run through the instrumented service are recorded as one operation each.
+     */
+    private static void testImports() throws IOException {
+        Service delegate = new Service(new InMemoryRepository<UUID, User>(NaturalKeys.user()),
+                new InMemoryRepository<FriendshipKey, Friendship>(NaturalKeys.friendship()));
+        InstrumentedService<UUID> service = new InstrumentedService<>(delegate);
+        BulkImporter importer = new BulkImporter(delegate);
+        Path users = Files.createTempFile("instrumented-users", ".csv");
+        Files.write(users, List.of("firstName,lastName,email", "Ion,Remus,ion.remus@mail.com",
+                "Marius,Chiriac,marius.chiriac@mail.com"));
+
+        ImportProgress report = service.importUsers(importer, users, null, ValidateStrategy.PARALLEL, null);
+        assert (report.getImported() == 2);
+        assert (find(service, "importUsers").getCalls() == 1);
+        assert (find(service, "importFriendships").getCalls() == 0);
+        try {
+            service.importFriendships(importer, users.resolveSibling("missing-friendships.csv"), null, null);
+            assert false;
+        } catch (ServiceException sE) {
+            assert true;
+        }
+        assert (find(service, "importFriendships").getErrors() == 1);
+        assert (service.getUsers().size() == 2);
+        Files.delete(users);
+    }
+
+    /**
+     * Checks the percentiles of known latencies: they can be off by at most a quarter of their value.
+     */
+    private static void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        OperationSnapshot empty = histogram.snapshot("empty");
+        assert (empty.getCalls() == 0 && empty.getP99Nanos() == 0 && empty.getMeanNanos() == 0);
+
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos * 1_000, false);
+        }
+        OperationSnapshot snapshot = histogram.snapshot("uniform");
+        assert (snapshot.getCalls() == 100_000);
+        assert (snapshot.getErrors() == 0);
+        assert (snapshot.getMaxNanos() == 100_000_000);
+        assert (Math.abs(snapshot.getMeanNanos() - 50_000_500) <= 1);
+        assert (within(snapshot.getP50Nanos(), 50_000_000));
+        assert (within(snapshot.getP90Nanos(), 90_000_000));
+        assert (within(snapshot.getP99Nanos(), 99_000_000));
+
+        // a percentile is the largest latency of its bucket, so it is never below the exact one
+        assert (snapshot.getP50Nanos() >= 50_000_000);
+
+        LatencyHistogram small = new LatencyHistogram();
+        small.record(0, true);
+        small.record(3, false);
+        small.record(Long.MAX_VALUE, false);
+        OperationSnapshot extremes = small.snapshot("extremes");
+        assert (extremes.getCalls() == 3 && extremes.getErrors() == 1);
+        assert (extremes.getP50Nanos() == 3);
+        assert (extremes.getP99Nanos() == Long.MAX_VALUE);
+    }
+
+    private static boolean within(long actual, long expected) {
+        return Math.abs(actual - expected) <= expected / 4;
+    }
+
+    private static void testConcurrentRecording() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int seed = t;
+            threads[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 50_000; i++) {
+                    histogram.record(random.nextInt(1_000_000), i % 10 == 0);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        OperationSnapshot snapshot = histogram.snapshot("concurrent");
+        assert (snapshot.getCalls() == 200_000);
+        assert (snapshot.getErrors() == 20_000);
+        assert (snapshot.getMaxNanos() < 1_000_000);
+    }
+
+    public static void run() throws InterruptedException, IOException {
+        testCounts();
+        testImports();
+        testPercentiles();
+        testConcurrentRecording();
+
+        System.out.println("Instrumented service tests passed at: " + DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss").format(LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,223 @@
+import entity.Friendship;
+import entity.FriendshipKey;
+import entity.User;
+import exception.RepositoryException;
+import repository.LogRepository;
+import repository.NaturalKeys;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TestLogRepository {
+    private static LogRepository<UUID, User> open(Path directory, long compactionThreshold) {
+        return new LogRepository<>(directory, NaturalKeys.user(), compactionThreshold);
+    }
+
+    private static Map<UUID, User> contents(LogRepository<UUID, User> repository) {
+        Map<UUID, User> contents = new HashMap<>();
+        repository.getAll().forEach(user -> contents.put(user.getId(), user));
+        return contents;
+    }
+
+    private static Path logFile(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("log-")).findFirst().orElseThrow();
+        }
+    }
+
+    private static void testReopen(Path directory) {
+        LogRepository<UUID, User> repository = open(directory, LogRepository.DEFAULT_COMPACTION_THRESHOLD);
+        User user1 = new User("Ion", "Remus", "ion.remus@mail.com");
+        User user2 = new User("Marius", "Chiriac", "marius.chiriac@mail.com");
+        User user3 = new User("Vlad", "Remus", "vlad.remus@mail.com");
+        repository.save(user1);
+        repository.save(user2);
+        repository.save(user3);
+        repository.delete(user2.getId());
+        User updated = new User("Ion", "Remus", "ion.remus2@mail.com");
+        updated.setId(user1.getId());
+        repository.update(updated);
+
+        try {
+            repository.save(new User("Vlad", "Remus", "vlad.remus@mail.com"));
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        }
+        Map<UUID, User> before = contents(repository);
+        repository.close();
+
+        LogRepository<UUID, User> reopened = open(directory, LogRepository.DEFAULT_COMPACTION_THRESHOLD);
+        assert (contents(reopened).equals(before));
+        assert (reopened.getOne(user1.getId()).getEmail().equals("ion.remus2@mail.com"));
+        reopened.close();
+    }
+
+    private static void testTornWrite(Path directory) throws IOException {
+        LogRepository<UUID, User> repository = open(directory, LogRepository.DEFAULT_COMPACTION_THRESHOLD);
+        User user1 = new User("Ion", "Remus", "ion.remus@mail.com");
+        User user2 = new User("Marius", "Chiriac", "marius.chiriac@mail.com");
+        repository.save(user1);
+        repository.save(user2);
+        repository.close();
+
+        // the last record was only partially written
+        Path log = logFile(directory);
+        try (RandomAccessFile file = new RandomAccessFile(log.toFile(), "rw")) {
+            file.setLength(file.length() - 5);
+        }
+        repository = open(directory, LogRepository.DEFAULT_COMPACTION_THRESHOLD);
+        assert (repository.size() == 1);
+        assert (repository.getOne(user1.getId()).equals(user1));
+
+        // the repository keeps working after the torn tail was cut off
+        User user3 = new User("Vlad", "Remus", "vlad.remus@mail.com");
+        repository.save(user3);
+        repository.close();
+
+        // the last record has a corrupt byte
+        try (RandomAccessFile file = new RandomAccessFile(log.toFile(), "rw")) {
+            file.seek(file.length() - 3);
+            int value = file.read();
+            file.seek(file.length() - 3);
+            file.write(value ^ 0xFF);
+        }
+        repository = open(directory, LogRepository.DEFAULT_COMPACTION_THRESHOLD);
+        assert (repository.size() == 1);
+
+        // only a few bytes of the header of a record were written
+        repository.save(user3);
+        repository.close();
+        try (RandomAccessFile file = new RandomAccessFile(log.toFile(), "rw")) {
+            file.seek(file.length());
+            file.write(new byte[]{0, 0, 1});
+        }
+        repository = open(directory, LogRepository.DEFAULT_COMPACTION_THRESHOLD);
+        assert (repository.size() == 2);
+        repository.close();
+    }
+
+    private static void testSnapshots(Path directory) throws IOException {
+        LogRepository<UUID, User> repository = open(directory, 2048);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            User user = new User("Name", "Surname", "user" + i + "@mail.com");
+            users.add(user);
+            repository.save(user);
+            if (i % 3 == 0) {
+                repository.delete(users.get(i / 2).getId());
+            }
+        }
+        assert (Files.exists(directory.resolve("snapshot.dat")));
+        assert (Files.size(logFile(directory)) <= 2048 + 1024);
+        Map<UUID, User> before = contents(repository);
+        repository.close();
+
+        repository = open(directory, 2048);
+        assert (contents(repository).equals(before));
+        repository.close();
+    }
+
+    private static void testConcurrentWriters(Path directory) throws Exception {
+        LogRepository<UUID, User> repository = open(directory, 16 * 1024);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            int current = thread;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    repository.save(new User("Name", "Surname", "user" + current + "." + i + "@mail.com"));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        Map<UUID, User> before = contents(repository);
+        assert (before.size() == 400);
+        repository.close();
+
+        LogRepository<UUID, User> reopened = open(directory, 16 * 1024);
+        assert (contents(reopened).equals(before));
+        reopened.close();
+    }
+
+    private static void testBatches(Path directory) throws IOException {
+        LogRepository<UUID, User> repository = open(directory, LogRepository.DEFAULT_COMPACTION_THRESHOLD);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            users.add(new User("Name", "Surname", "user" + i + "@mail.com"));
+        }
+        repository.saveAll(users);
+        long size = Files.size(logFile(directory));
+        try {
+            repository.saveAll(List.of(new User("Ion", "Remus", "ion.remus@mail.com"), users.getFirst()));
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        }
+        // a rejected batch isn't written
+        assert (Files.size(logFile(directory)) == size);
+        List<User> removed = repository.deleteAll(users.subList(10, 60).stream().map(User::getId).toList());
+        assert (removed.equals(users.subList(10, 60)));
+        Map<UUID, User> before = contents(repository);
+        repository.close();
+
+        repository = open(directory, LogRepository.DEFAULT_COMPACTION_THRESHOLD);
+        assert (repository.size() == 50);
+        assert (repository.stream().count() == 50);
+        assert (contents(repository).equals(before));
+        repository.close();
+    }
+
+    private static void testFriendships(Path directory) {
+        LogRepository<FriendshipKey, Friendship> repository = new LogRepository<>(directory);
+        Friendship friendship = new Friendship(UUID.randomUUID(), UUID.randomUUID());
+        repository.save(friendship);
+        repository.close();
+
+        repository = new LogRepository<>(directory);
+        assert (repository.getOne(friendship.getId()).getFriendshipDate().equals(friendship.getFriendshipDate()));
+        repository.close();
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path path : files.toList()) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    public static void run() throws Exception {
+        List<Path> directories = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            directories.add(Files.createTempDirectory("log-repository"));
+        }
+
+        try {
+            testReopen(directories.get(0));
+            testTornWrite(directories.get(1));
+            testSnapshots(directories.get(2));
+            testConcurrentWriters(directories.get(3));
+            testFriendships(directories.get(4));
+            testBatches(directories.get(5));
+        } finally {
+            for (Path directory : directories) {
+                deleteDirectory(directory);
+            }
+        }
+
+        System.out.println("Log repository tests passed at: " + DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss").format(LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,210 @@
+import entity.User;
+import exception.RepositoryException;
+import repository.MappedUserRepository;
+import repository.Page;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+public class TestMappedRepository {
+    private static Map<UUID, User> contents(MappedUserRepository repository) {
+        Map<UUID, User> contents = new HashMap<>();
+        repository.getAll().forEach(user -> contents.put(user.getId(), user));
+        return contents;
+    }
+
+    private static void testOperations(Path file) {
+        MappedUserRepository repository = new MappedUserRepository(file);
+        assert (repository.isEmpty());
+
+        User user1 = new User("Ion", "Remus", "ion.remus@mail.com");
+        User user2 = new User("Ștefan", "Pătrașcu", "stefan.patrascu@mail.com");
+        repository.save(user1);
+        repository.save(user2);
+        assert (repository.size() == 2);
+        assert (repository.getOne(user2.getId()).equals(user2));
+        assert (repository.getOne(user2.getId()).getId().equals(user2.getId()));
+
+        try {
+            repository.save(user1);
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        }
+        try {
+            repository.getOne(UUID.randomUUID());
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        }
+        try {
+            repository.save(new User("Ion", "Remus", "a".repeat(MappedUserRepository.MAX_EMAIL_BYTES) + "@mail.com"));
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        }
+        try {
+            repository.getOne(null);
+            assert false;
+        } catch (IllegalArgumentException iAE) {
+            assert true;
+        }
+
+        User updated = new User(user1.getId(), "Ion", "Remus", "ion.remus2@mail.com");
+        assert (repository.update(updated).equals(user1));
+        assert (repository.getOne(user1.getId()).getEmail().equals("ion.remus2@mail.com"));
+
+        assert (repository.delete(user2.getId()).equals(user2));
+        assert (repository.size() == 1);
+        try {
+            repository.delete(user2.getId());
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        }
+
+        User nullEmail = new User("Vlad", "Remus", null);
+        repository.save(nullEmail);
+        assert (repository.getOne(nullEmail.getId()).getEmail() == null);
+        repository.close();
+    }
+
+    /**
+     * Fills and grows a repository mapped mappingSlots slots at a time, then reopens it with the default mappings.
+     */
+    private static void testReopenAndGrow(Path file, int mappingSlots) {
+        MappedUserRepository repository = new MappedUserRepository(file, mappingSlots);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            User user = new User("Name", "Surname", "user" + i + "@mail.com");
+            users.add(user);
+            repository.save(user);
+            // deletes leave tombstones behind, which must not break the probes
+            if (i % 3 == 0) {
+                repository.delete(users.get(i / 2).getId());
+            }
+        }
+        Map<UUID, User> before = contents(repository);
+        assert (before.size() == repository.size());
+
+        // a batch grows the table at most once, and is all or nothing
+        List<User> batch = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            batch.add(new User("Batch", "Surname", "batch" + i + "@mail.com"));
+        }
+        try {
+            repository.saveAll(List.of(batch.getFirst(), users.getLast()));
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        }
+        assert (repository.size() == before.size());
+        repository.saveAll(batch);
+        assert (repository.getMany(List.of(batch.get(7).getId(), batch.get(3)
+                .getId())).equals(List.of(batch.get(7), batch.get(3))));
+        assert (repository.deleteAll(batch.stream().map(User::getId).toList()).equals(batch));
+        assert (repository.size() == before.size());
+        repository.close();
+
+        MappedUserRepository reopened = new MappedUserRepository(file);
+        assert (reopened.size() == before.size());
+        assert (contents(reopened).equals(before));
+        Set<UUID> listed = new HashSet<>();
+        for (Page<User> page = reopened.getPage(null, 100); ; page = reopened.getPage(page.getNextToken(), 100)) {
+            page.getItems().forEach(user -> listed.add(user.getId()));
+            if (!page.hasNext()) {
+                break;
+            }
+        }
+        assert (listed.equals(before.keySet()));
+        for (User user : before.values()) {
+            assert (reopened.getOne(user.getId()).getEmail().equals(user.getEmail()));
+        }
+        reopened.close();
+    }
+
+    private static void testNotARepository(Path file) throws IOException {
+        try {
+            new MappedUserRepository(file, 48);
+            assert false;
+        } catch (IllegalArgumentException iAE) {
+            assert true;
+        }
+
+        Files.writeString(file, "not a repository");
+        try {
+            new MappedUserRepository(file);
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        }
+    }
+
+    /**
+     * Overwrites the length of a stored email with a length larger than the field.
+     */
+    private static void testCorruptedLength(Path file) throws IOException {
+        MappedUserRepository repository = new MappedUserRepository(file);
+        User user = new User("Ion", "Remus", "ion.remus@mail.com");
+        repository.save(user);
+        repository.close();
+
+        byte[] bytes = Files.readAllBytes(file);
+        byte[] email = user.getEmail().getBytes(StandardCharsets.UTF_8);
+        int position = Collections.indexOfSubList(toList(bytes), toList(email));
+        assert (position >= 2);
+        bytes[position - 2] = 0x7F;
+        bytes[position - 1] = (byte) 0xFF;
+        Files.write(file, bytes);
+
+        MappedUserRepository corrupted = new MappedUserRepository(file);
+        try {
+            corrupted.getOne(user.getId());
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        } finally {
+            corrupted.close();
+        }
+    }
+
+    private static List<Byte> toList(byte[] bytes) {
+        List<Byte> list = new ArrayList<>(bytes.length);
+        for (byte b : bytes) {
+            list.add(b);
+        }
+        return list;
+    }
+
+    public static void run() throws Exception {
+        Path directory = Files.createTempDirectory("mapped-repository");
+        Path file1 = directory.resolve("users1.dat");
+        Path file2 = directory.resolve("users2.dat");
+        Path file3 = directory.resolve("users3.dat");
+        Path file4 = directory.resolve("users4.dat");
+        Path file5 = directory.resolve("users5.dat");
+
+        try {
+            testOperations(file1);
+            testReopenAndGrow(file2, MappedUserRepository.DEFAULT_MAPPING_SLOTS);
+            // a table of many mappings, as a table of more than DEFAULT_MAPPING_SLOTS slots has
+            testReopenAndGrow(file5, 64);
+            testNotARepository(file3);
+            testCorruptedLength(file4);
+        } finally {
+            Files.deleteIfExists(file1);
+            Files.deleteIfExists(file2);
+            Files.deleteIfExists(file3);
+            Files.deleteIfExists(file4);
+            Files.deleteIfExists(file5);
+            Files.delete(directory);
+        }
+
+        System.out.println("Mapped repository tests passed at: " + DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss").format(LocalDateTime.now()));
+    }
+}
@@ -2,10 +2,14 @@ import entity.User;
 import exception.RepositoryException;
 import repository.AbstractRepository;
 import repository.InMemoryRepository;
+import repository.NaturalKeys;
+import repository.Page;
+import repository.SlotIndex;
+import repository.UuidSlotIndex;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.UUID;
+import java.util.*;
 
 public class TestRepository {
     public static void run() throws RepositoryException {
@@ -86,6 +90,151 @@ public class TestRepository {
         user2.setId(user1.getId());
         assert (userRepository.update(user2).equals(user1));
 
+        // Testing the natural key index
+        AbstractRepository<UUID, User> keyedRepository = new InMemoryRepository<>(NaturalKeys.user());
+        User user3 = new User("Ion", "Remus", "ion.remus@mail.com");
+        User user4 = new User("Ion", "Remus", "ion.remus@mail.com");
+        keyedRepository.save(user3);
+
+        try {
+            keyedRepository.save(user4);
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        }
+
+        keyedRepository.delete(user3.getId());
+        keyedRepository.save(user4);
+        assert (keyedRepository.size() == 1);
+
+        User user5 = new User("Ion", "Remus", "ion.remus2@mail.com");
+        user5.setId(user4.getId());
+        keyedRepository.update(user5);
+        keyedRepository.save(user3);
+        assert (keyedRepository.size() == 2);
+
+        // an update can't take the natural key of another entity
+        User collision = new User(user5.getId(), "Ion", "Remus", "ion.remus@mail.com");
+        try {
+            keyedRepository.update(collision);
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        }
+        assert (keyedRepository.getOne(user5.getId()) == user5);
+        keyedRepository.delete(user3.getId());
+        try {
+            keyedRepository.save(new User("Ion", "Remus", "ion.remus2@mail.com"));
+            assert false;
+        } catch (RepositoryException rE) {
+            assert true;
+        }
+        keyedRepository.save(user3);
+
+        // Testing the batch operations, which are all or nothing
+        User user6 = new User("Vlad", "Remus", "vlad.remus@mail.com");
+        User user7 = new User("Dan", "Remus", "dan.remus@mail.com");
+        User user8 = new User("Dan", "Remus", "dan.remus@mail.com");
+        for (AbstractRepository<UUID, User> repository : List.of(keyedRepository, userRepository)) {
+            int size = repository.size();
+            try {
+                repository.saveAll(List.of(user6, user7, user8));
+                assert false;
+            } catch (RepositoryException rE) {
+                assert true;
+            }
+            try {
+                repository.saveAll(List.of(user6, user6));
+                assert false;
+            } catch (RepositoryException rE) {
+                assert true;
+            }
+            assert (repository.size() == size);
+
+            repository.saveAll(List.of(user6, user7));
+            assert (repository.size() == size + 2);
+            assert (repository.getMany(List.of(user7.getId(), user6.getId())).equals(List.of(user7, user6)));
+
+            try {
+                repository.deleteAll(List.of(user6.getId(), UUID.randomUUID()));
+                assert false;
+            } catch (RepositoryException rE) {
+                assert true;
+            }
+            try {
+                repository.deleteAll(List.of(user6.getId(), user6.getId()));
+                assert false;
+            } catch (RepositoryException rE) {
+                assert true;
+            }
+            assert (repository.size() == size + 2);
+            assert (repository.deleteAll(List.of(user6.getId(), user7.getId())).equals(List.of(user6, user7)));
+            assert (repository.size() == size);
+        }
+
+        // Testing the pages, which list every entity once even if entities are removed between pages
+        AbstractRepository<UUID, User> pagedRepository = new InMemoryRepository<>(NaturalKeys.user());
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 95; i++) {
+            users.add(new User("Name", "Surname", "user" + i + "@mail.com"));
+        }
+        pagedRepository.saveAll(users);
+        pagedRepository.delete(users.get(3).getId());
+        Set<UUID> listed = new HashSet<>();
+        Page<User> page = pagedRepository.getPage(null, 10);
+        int pages = 1;
+        page.getItems().forEach(user -> listed.add(user.getId()));
+        pagedRepository.delete(users.get(50).getId());
+        while (page.hasNext()) {
+            page = pagedRepository.getPage(page.getNextToken(), 10);
+            assert (page.getItems().size() <= 10);
+            for (User user : page.getItems()) {
+                assert (listed.add(user.getId()));
+            }
+            pages++;
+        }
+        assert (listed.size() == 93);
+        assert (pages == 10);
+        assert (pagedRepository.stream().count() == 93);
+
+        try {
+            pagedRepository.getPage("not a token", 10);
+            assert false;
+        } catch (IllegalArgumentException iAE) {
+            assert true;
+        }
+        try {
+            pagedRepository.getPage(null, 0);
+            assert false;
+        } catch (IllegalArgumentException iAE) {
+            assert true;
+        }
+
+        // Testing the index of UUIDs against a HashMap, with enough removals to fill the table with tombstones
+        SlotIndex<UUID> index = new UuidSlotIndex();
+        Map<UUID, Integer> expected = new HashMap<>();
+        List<UUID> ids = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            int operation = random.nextInt(3);
+            if (operation == 0 || ids.isEmpty()) {
+                UUID id = new UUID(random.nextLong(), random.nextLong());
+                ids.add(id);
+                assert (index.put(id, i) == SlotIndex.NONE);
+                expected.put(id, i);
+            } else {
+                UUID id = ids.get(random.nextInt(ids.size()));
+                Integer slot = expected.remove(id);
+                assert (index.remove(id) == (slot == null ? SlotIndex.NONE : slot));
+            }
+            assert (index.size() == expected.size());
+        }
+        for (UUID id : ids) {
+            assert (index.get(id) == expected.getOrDefault(id, SlotIndex.NONE));
+        }
+        assert (index.get(UUID.randomUUID()) == SlotIndex.NONE);
+        assert (index.get("not a UUID") == SlotIndex.NONE);
+
         System.out.println("Repository tests passed at: " + DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss").format(LocalDateTime.now()));
     }
 }
@@ -0,0 +1,135 @@
+import entity.Friendship;
+import entity.FriendshipKey;
+import entity.User;
+import exception.ServiceException;
+import repository.InMemoryRepository;
+import repository.NaturalKeys;
+import service.Service;
+import utility.TrigramIndex;
+import validator.ValidateStrategy;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+public class TestSearch {
+    private static final String[] NAMES = {"Ion", "Ioana", "Marius", "Mariana", "Vlad", "Dan", "Remus", "Chiriac"};
+
+    /**
+     * Checks the index against a scan of the items, with random queries, additions and removals.
+     */
+    private static void testAgainstScan() {
+        TrigramIndex<Integer> index = new TrigramIndex<>();
+        Map<Integer, String[]> items = new LinkedHashMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 2_000; i++) {
+            if (random.nextInt(4) == 0 && !items.isEmpty()) {
+                Integer id = items.keySet().iterator().next();
+                items.remove(id);
+                index.remove(id);
+                continue;
+            }
+            String first = NAMES[random.nextInt(NAMES.length)];
+            String last = NAMES[random.nextInt(NAMES.length)];
+            String[] fields = {first, last, (first + "." + last + i + "@mail.com").toLowerCase()};
+            items.put(i, fields);
+            index.add(i, fields);
+        }
+        assert (index.size() == items.size());
+
+        for (String query : List.of("io", "ana", "MARI", "us.re", "s1", "mail.com", "xyz", "r")) {
+            String text = query.toLowerCase();
+            Set<Integer> expected = new HashSet<>();
+            items.forEach((id, fields) -> {
+                if (Arrays.stream(fields).anyMatch(field -> field.toLowerCase().contains(text))) {
+                    expected.add(id);
+                }
+            });
+            List<Integer> found = index.search(query, items.size());
+            assert (new HashSet<>(found).equals(expected));
+
+            // prefix matches come first
+            List<Integer> limited = index.search(query, 5);
+            assert (limited.size() == Math.min(5, expected.size()));
+            boolean substring = false;
+            for (Integer id : limited) {
+                boolean prefix = Arrays.stream(items.get(id)).anyMatch(field -> field.toLowerCase().startsWith(text));
+                assert (!(substring && prefix));
+                substring |= !prefix;
+            }
+        }
+
+        try {
+            index.search("ion", 0);
+            assert false;
+        } catch (IllegalArgumentException iAE) {
+            assert true;
+        }
+        assert (index.search("  ", 10).isEmpty());
+    }
+
+    /**
+     * Adds and removes many more items than are ever live at once, so that the index is compacted several times.
+     */
+    private static void testChurn() {
+        TrigramIndex<Integer> index = new TrigramIndex<>();
+        Map<Integer, String> items = new LinkedHashMap<>();
+        Random random = new Random(19);
+        for (int i = 0; i < 20_000; i++) {
+            String email = NAMES[random.nextInt(NAMES.length)].toLowerCase() + i + "@mail.com";
+            items.put(i, email);
+            index.add(i, email);
+            if (items.size() > 100) {
+                Integer id = new ArrayList<>(items.keySet()).get(random.nextInt(items.size()));
+                items.remove(id);
+                index.remove(id);
+            }
+            if (i % 5_000 == 4_999) {
+                assert (index.size() == items.size());
+                for (String query : List.of("ion", "ma", "1@", "mail")) {
+                    Set<Integer> expected = new HashSet<>();
+                    items.forEach((id, item) -> {
+                        if (item.contains(query)) {
+                            expected.add(id);
+                        }
+                    });
+                    assert (new HashSet<>(index.search(query, items.size())).equals(expected));
+                }
+            }
+        }
+
+        // a substring of every item stops the search at the limit
+        assert (index.search("mail", 5).size() == 5);
+    }
+
+    private static void testService() {
+        Service service = new Service(new InMemoryRepository<UUID, User>(NaturalKeys.user()),
+                new InMemoryRepository<FriendshipKey, Friendship>(NaturalKeys.friendship()));
+        service.addUser("Ion", "Remus", "ion.remus@mail.com", ValidateStrategy.SLOW);
+        service.addUser("Marius", "Chiriac", "marius.chiriac@mail.com", ValidateStrategy.SLOW);
+        service.addUser("Mariana", "Ionescu", "mariana.ionescu@mail.com", ValidateStrategy.SLOW);
+
+        List<User> found = service.searchUsers("ion", 10);
+        assert (found.size() == 2);
+        assert (found.getFirst().getFirstName().equals("Ion"));
+        assert (service.searchUsers("chir", 10).getFirst().getLastName().equals("Chiriac"));
+
+        service.removeUser(found.getFirst().getId());
+        assert (service.searchUsers("ion", 10).size() == 1);
+
+        try {
+            service.searchUsers(null, 10);
+            assert false;
+        } catch (ServiceException sE) {
+            assert true;
+        }
+    }
+
+    public static void run() {
+        testAgainstScan();
+        testChurn();
+        testService();
+
+        System.out.println("Search tests passed at: " + DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss").format(LocalDateTime.now()));
+    }
+}
@@ -1,19 +1,24 @@
 import entity.Friendship;
-import entity.Tuple;
+import entity.FriendshipKey;
 import entity.User;
 import exception.ServiceException;
+import repository.InMemoryFriendshipRepository;
 import repository.InMemoryRepository;
+import repository.NaturalKeys;
+import repository.Page;
 import service.Service;
 import validator.ValidateStrategy;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 public class TestService {
     public static void run() {
-        InMemoryRepository<UUID, User> userInMemoryRepository = new InMemoryRepository<>();
-        InMemoryRepository<Tuple<UUID, UUID>, Friendship> friendshipInMemoryRepository = new InMemoryRepository<>();
+        InMemoryRepository<UUID, User> userInMemoryRepository = new InMemoryRepository<>(NaturalKeys.user());
+        InMemoryRepository<FriendshipKey, Friendship> friendshipInMemoryRepository = new InMemoryRepository<>(NaturalKeys.friendship());
 
         Service service = new Service(userInMemoryRepository, friendshipInMemoryRepository);
 
@@ -49,6 +54,21 @@ public class TestService {
 
         service.addUser("Mariana", "Chiriac", "mariana.chiriac@mail.com", ValidateStrategy.SLOW);
 
+        // testing the email index, which ignores the case and is unique
+        assert (service.getUserByEmail(" Mariana.Chiriac@mail.com").getLastName().equals("Chiriac"));
+        try {
+            service.addUser("Marian", "Chiriac", "MARIANA.chiriac@mail.com", ValidateStrategy.SLOW);
+            assert false;
+        } catch (ServiceException sE) {
+            assert true;
+        }
+        try {
+            service.getUserByEmail("nobody@mail.com");
+            assert false;
+        } catch (ServiceException sE) {
+            assert true;
+        }
+
         // adding a friendship
         User user1 = service.getUsers().getFirst();
         User user2 = service.getUsers().getLast();
@@ -56,6 +76,18 @@ public class TestService {
         assert (!service.getFriendsOf(user1.getId()).isEmpty());
         assert (!service.getFriendships().isEmpty());
         assert (service.getFriendship(user1.getId(), user2.getId()) != null);
+        assert (service.getUsers(List.of(user2.getId(), user1.getId())).equals(List.of(user2, user1)));
+        assert (service.getUsers(null, 1).getItems().size() == 1);
+        assert (service.getUsers(service.getUsers(null, 1).getNextToken(), 1).getItems().size() == 1);
+        // a friendship is stored once, and can be read in both directions
+        assert (service.streamFriendships().count() == 1);
+        assert (service.getFriendship(user2.getId(), user1.getId()).equals(service.getFriendship(user1.getId(), user2.getId())));
+        try {
+            service.getFriendships("?", 1);
+            assert false;
+        } catch (ServiceException sE) {
+            assert true;
+        }
 
         // trying to add the same friendship
         try {
@@ -64,10 +96,28 @@ public class TestService {
         } catch (ServiceException sE) {
             assert true;
         }
+        try {
+            service.addFriendship(user2.getId(), user1.getId());
+            assert false;
+        } catch (ServiceException sE) {
+            assert true;
+        }
+        try {
+            service.addFriendship(user1.getId(), user1.getId());
+            assert false;
+        } catch (ServiceException sE) {
+            assert true;
+        }
 
         // removing an user which has friendships
         service.removeUser(user1.getId());
         assert (service.getFriendsOf(user2.getId()).isEmpty());
+        try {
+            service.getUserByEmail(user1.getEmail());
+            assert false;
+        } catch (ServiceException sE) {
+            assert true;
+        }
 
         // trying to remove an user who doesn't exist
         try {
@@ -101,7 +151,7 @@ public class TestService {
         User friend1 = service.getUsers().getFirst();
         User friend2 = service.getUsers().getLast();
         service.addFriendship(friend1.getId(), friend2.getId());
-        assert (service.removeFriendship(friend1.getId(), friend2.getId()).getId().getLeft().equals(friend1.getId()));
+        assert (service.removeFriendship(friend2.getId(), friend1.getId()).getId().equals(Friendship.key(friend1.getId(), friend2.getId())));
         assert (service.getFriendships().isEmpty());
         try {
             service.getFriendship(friend1.getId(), friend2.getId());
@@ -110,6 +160,73 @@ public class TestService {
             assert true;
         }
 
+        // friendships stored once per direction are folded into one when the service starts
+        InMemoryRepository<UUID, User> oldUsers = new InMemoryRepository<>(NaturalKeys.user());
+        InMemoryRepository<FriendshipKey, Friendship> oldFriendships = new InMemoryRepository<>(NaturalKeys.friendship());
+        User old1 = new User("Ion", "Remus", "ion.remus@mail.com");
+        User old2 = new User("Vlad", "Remus", "vlad.remus@mail.com");
+        User old3 = new User("Dan", "Remus", "dan.remus@mail.com");
+        oldUsers.saveAll(List.of(old1, old2, old3));
+        LocalDateTime date = LocalDateTime.of(2023, 10, 1, 12, 0);
+        oldFriendships.saveAll(List.of(new Friendship(old1.getId(), old2.getId(), date),
+                new Friendship(old2.getId(), old1.getId(), date),
+                new Friendship(old2.getId(), old3.getId(), date),
+                new Friendship(old3.getId(), old2.getId(), date)));
+        Service migrated = new Service(oldUsers, oldFriendships);
+        assert (oldFriendships.size() == 2);
+        for (Friendship friendship : oldFriendships.getAll()) {
+            assert (friendship.isCanonical());
+            assert (friendship.getFriendshipDate().equals(date));
+        }
+        assert (migrated.getFriendsOf(old2.getId()).size() == 2);
+        assert (migrated.getFriendship(old3.getId(), old2.getId()) != null);
+        assert (migrated.getNumberOfCommunities() == 1);
+
+        // users are listed alphabetically, by last name and first name, one page at a time
+        migrated.addUser("Ana", "Chiriac", "ana.chiriac@mail.com", ValidateStrategy.SLOW);
+        migrated.addUser("Bogdan", "Albu", "bogdan.albu@mail.com", ValidateStrategy.SLOW);
+        List<String> names = new ArrayList<>();
+        String token = null;
+        do {
+            Page<User> page = migrated.getUsersByName(null, token, 2);
+            assert (page.getItems().size() <= 2);
+            page.getItems().forEach(user -> names.add(user.getLastName() + " " + user.getFirstName()));
+            token = page.getNextToken();
+        } while (token != null);
+        assert (names.equals(List.of("Albu Bogdan", "Chiriac Ana", "Remus Dan", "Remus Ion", "Remus Vlad")));
+        assert (migrated.getUsersByName("remus", null, 10).getItems().size() == 3);
+        migrated.removeUser(old3.getId());
+        assert (migrated.getUsersByName("r", null, 10).getItems().getFirst().getFirstName().equals("Ion"));
+        try {
+            migrated.getUsersByName(null, "not a token", 2);
+            assert false;
+        } catch (ServiceException sE) {
+            assert true;
+        }
+
+        // friendships in the compact repository are found and removed without a key, in either order
+        Service compact = new Service(new InMemoryRepository<>(NaturalKeys.user()), new InMemoryFriendshipRepository());
+        compact.addUser("Ion", "Remus", "ion.remus@mail.com", ValidateStrategy.SLOW);
+        compact.addUser("Dan", "Remus", "dan.remus@mail.com", ValidateStrategy.SLOW);
+        UUID ion = compact.getUserByEmail("ion.remus@mail.com").getId();
+        UUID dan = compact.getUserByEmail("dan.remus@mail.com").getId();
+        compact.addFriendship(ion, dan);
+        assert (compact.getFriendship(dan, ion) == compact.getFriendship(ion, dan));
+        assert (compact.removeFriendship(dan, ion).getId().equals(Friendship.key(ion, dan)));
+        assert (compact.getFriendsOf(ion).isEmpty());
+        try {
+            compact.getFriendship(ion, dan);
+            assert false;
+        } catch (ServiceException sE) {
+            assert true;
+        }
+        try {
+            compact.removeFriendship(ion, dan);
+            assert false;
+        } catch (ServiceException sE) {
+            assert true;
+        }
+
         System.out.println("Service tests passed at: " + DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss").format(LocalDateTime.now()));
     }
 }
@@ -1,11 +1,57 @@
 import entity.User;
 import exception.ValidatorException;
 import validator.UserValidator;
+import validator.ValidateStrategy;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
 
 public class TestValidator {
+    /**
+     * @return The error of the validation, or null if the user is valid.
+     */
+    private static String errorOf(UserValidator validator, User user, ValidateStrategy strategy) {
+        try {
+            validator.validate(user, strategy);
+            return null;
+        } catch (ValidatorException vE) {
+            return vE.getMessage();
+        }
+    }
+
+    /**
+     * Checks that the fast validation accepts the same users as the slow one, with the same errors.
+     */
+    private static void testFastAgreesWithSlow(UserValidator validator) {
+        String[] names = {null, "", "Io", "Ion", "ion", "IOn", "Ion1", "Ionescu", "Ion-Vlad", "Ăna"};
+        String[] emails = {null, "", "@", "@@", "a", "a@", "a@b", "a@b.", "a@.b", "a@b.c", "@b.c", "a@@b.c",
+                "a@b.c@", "a@b.c@@", "a@b@c.d", "a@...", "a@.", "a@b..", "a@b..c", "a.b@c", "a@b.c."};
+        List<User> users = new ArrayList<>();
+        for (String name : names) {
+            for (String email : emails) {
+                users.add(new User(name, "Remus", email));
+                users.add(new User("Ion", name, email));
+            }
+        }
+        for (User user : users) {
+            String slow = errorOf(validator, user, ValidateStrategy.SLOW);
+            assert (Objects.equals(slow, errorOf(validator, user, ValidateStrategy.FAST)));
+        }
+
+        // batches give the same errors, in the same order, whether they are validated in parallel or not
+        while (users.size() < 4 * UserValidator.PARALLEL_THRESHOLD) {
+            users.addAll(new ArrayList<>(users));
+        }
+        String[] sequential = validator.validateAll(users, ValidateStrategy.SLOW);
+        String[] parallel = validator.validateAll(users, ValidateStrategy.PARALLEL);
+        assert (Arrays.equals(sequential, parallel));
+        assert (parallel[0] != null);
+    }
+
     public static void run() {
         UserValidator userValidator = new UserValidator();
 
@@ -120,6 +166,8 @@ public class TestValidator {
             assert true;
         }
 
+        testFastAgreesWithSlow(userValidator);
+
         System.out.println("Validator tests completed at: " + DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss").format(LocalDateTime.now()));
 
     }